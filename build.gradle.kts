@@ -2,6 +2,7 @@ plugins {
     application
     java
     id("org.openjfx.javafxplugin") version "0.0.14"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.lokins.sleepy.gui"
@@ -43,6 +44,20 @@ javafx {
 
 tasks.test {
     useJUnitPlatform()
+    // 配置、离线队列与活动记录都写在 ~/.sleepy 下，测试使用独立的目录
+    systemProperty("user.home", layout.buildDirectory.dir("test-home").get().asFile.absolutePath)
+    // 日志页逐帧耗时的测量默认跳过：./gradlew test -Dsleepy.logview.frameBench=true
+    System.getProperty("sleepy.logview.frameBench")?.let { systemProperty("sleepy.logview.frameBench", it) }
+}
+
+// 性能基准：./gradlew jmh，结果以 JSON 写入 build/reports/jmh/results.json，便于跨版本对比
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
 }
 
 application {
@@ -0,0 +1,81 @@
+package com.lokins.sleepy.gui.benchmark;
+
+import com.lokins.sleepy.gui.activity.ActivityJournal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 本地活动记录的写入与统计：一年的数据（每天 500 次切换、40 个应用）统计各应用累计时长的耗时，
+ * 以及一次切换（字典查找 + 写入映射）的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ActivityJournalBenchmark {
+    private static final ZoneId ZONE = ZoneId.of("UTC");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    private static final int DAYS = 365;
+    private static final int SWITCHES_PER_DAY = 500;
+
+    private Path dir;
+    private ActivityJournal journal;
+    private String[] apps;
+    private Instant clock;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("sleepy-activity-bench");
+        apps = new String[40];
+        for (int i = 0; i < apps.length; i++) {
+            apps[i] = "App-" + i;
+        }
+
+        // 保留天数为 0：不清理，否则生成的历史数据会被当作过期文件删除
+        Duration maxGap = Duration.ofMinutes(15);
+        try (ActivityJournal writer = new ActivityJournal(dir, ZONE, 0, maxGap)) {
+            Random random = new Random(42);
+            Instant start = FIRST_DAY.atStartOfDay(ZONE).toInstant();
+            long step = 86400 / SWITCHES_PER_DAY;
+            for (int day = 0; day < DAYS; day++) {
+                for (int i = 0; i < SWITCHES_PER_DAY; i++) {
+                    writer.switchTo(apps[random.nextInt(apps.length)], start.plusSeconds(day * 86400L + i * step));
+                }
+            }
+        }
+        journal = new ActivityJournal(dir, ZONE, 0, maxGap);
+        clock = FIRST_DAY.plusDays(DAYS).atStartOfDay(ZONE).toInstant();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Map<String, Duration> yearTotals() {
+        return journal.totals(FIRST_DAY, FIRST_DAY.plusDays(DAYS - 1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void switchApp() {
+        clock = clock.plusSeconds(1);
+        journal.switchTo(apps[next++ % apps.length], clock);
+    }
+}
@@ -0,0 +1,28 @@
+package com.lokins.sleepy.gui.benchmark;
+
+import com.lokins.sleepy.gui.utils.ConfigManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程同时读取配置时的开销，对应监控线程与界面线程并发读配置的场景：
+ * 字符串读取后自行解析 vs 直接读取快照中预先解析好的整数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class ConfigManagerContentionBenchmark {
+
+    @Benchmark
+    public int getInterval() throws IOException {
+        return Integer.parseInt(ConfigManager.getInstance().get("settings", "interval", "5"));
+    }
+
+    @Benchmark
+    public int getIntervalFromSnapshot() throws IOException {
+        return ConfigManager.getInstance().snapshot().getInt("settings", "interval", 5);
+    }
+}
@@ -0,0 +1,160 @@
+package com.lokins.sleepy.gui.benchmark;
+
+import com.lokins.sleepy.gui.network.HttpTransport;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import okhttp3.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 每 1000 次上报建立的 TCP 连接数与 TLS 握手次数：复用 {@link HttpTransport#shared()} 的客户端，
+ * 对比每次上报新建一个 OkHttpClient（共享传输层之前的做法）。
+ * 对端是本机的 JDK HttpsServer，证书由 keytool 临时生成；连接数和握手次数在 TearDown 时打印
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HttpTransportHandshakeBenchmark {
+    private static final char[] PASSWORD = "bench-secret".toCharArray();
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final byte[] PAYLOAD =
+            "{\"id\":\"bench\",\"show_name\":\"Bench PC\",\"using\":true,\"status\":\"Visual Studio Code\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    // 每次调用发送的上报数
+    @Param({"1000"})
+    public int reports;
+
+    private Path keyStoreFile;
+    private HttpsServer server;
+    private SSLContext sslContext;
+    private X509TrustManager trustManager;
+    private String url;
+    private OkHttpClient shared;
+
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+
+    @Setup
+    public void setup() throws Exception {
+        keyStoreFile = Files.createTempFile("sleepy-bench", ".p12");
+        Files.delete(keyStoreFile);
+        // JDK 没有生成自签名证书的公开 API，借用同一 JDK 的 keytool
+        Process keytool = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "bench", "-keyalg", "EC", "-validity", "1",
+                "-dname", "CN=127.0.0.1", "-ext", "SAN=ip:127.0.0.1",
+                "-storetype", "PKCS12", "-keystore", keyStoreFile.toString(),
+                "-storepass", new String(PASSWORD), "-keypass", new String(PASSWORD))
+                .inheritIO().start();
+        if (keytool.waitFor() != 0) {
+            throw new IllegalStateException("keytool exited with " + keytool.exitValue());
+        }
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStoreFile)) {
+            keyStore.load(in, PASSWORD);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        trustManager = (X509TrustManager) trustManagers.getTrustManagers()[0];
+        sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        server.createContext("/api/device/set", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            byte[] body = "{\"success\":true}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        url = "https://127.0.0.1:" + server.getAddress().getPort() + "/api/device/set";
+        // newBuilder 保留共享客户端的连接池与 Dispatcher，只换上信任本地证书的 TLS 配置
+        shared = configure(HttpTransport.shared().newBuilder()).build();
+    }
+
+    @TearDown
+    public void tearDown(BenchmarkParams params) throws IOException {
+        server.stop(0);
+        Files.deleteIfExists(keyStoreFile);
+        long total = Math.max(1, sent.get());
+        System.out.printf("%n%s: %d reports, %d connects, %d TLS handshakes (per 1000 reports: %.1f / %.1f)%n",
+                params.getBenchmark(), sent.get(), connects.get(), handshakes.get(),
+                connects.get() * 1000.0 / total, handshakes.get() * 1000.0 / total);
+    }
+
+    @Benchmark
+    public int sharedClient() throws IOException {
+        int ok = 0;
+        for (int i = 0; i < reports; i++) {
+            ok += send(shared);
+        }
+        return ok;
+    }
+
+    @Benchmark
+    public int clientPerReport() throws IOException {
+        int ok = 0;
+        for (int i = 0; i < reports; i++) {
+            OkHttpClient client = configure(new OkHttpClient.Builder()).build();
+            try {
+                ok += send(client);
+            } finally {
+                client.connectionPool().evictAll();
+            }
+        }
+        return ok;
+    }
+
+    private int send(OkHttpClient client) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(PAYLOAD, JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            sent.incrementAndGet();
+            return response.isSuccessful() ? 1 : 0;
+        }
+    }
+
+    private OkHttpClient.Builder configure(OkHttpClient.Builder builder) {
+        return builder
+                .sslSocketFactory(sslContext.getSocketFactory(), trustManager)
+                .eventListener(new EventListener() {
+                    @Override
+                    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+                        connects.incrementAndGet();
+                    }
+
+                    @Override
+                    public void secureConnectStart(Call call) {
+                        handshakes.incrementAndGet();
+                    }
+                });
+    }
+}
@@ -0,0 +1,42 @@
+package com.lokins.sleepy.gui.benchmark;
+
+import com.lokins.sleepy.gui.utils.LogRingBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个线程同时写日志时，维护最近 200 条历史的吞吐量：
+ * 原先的 CopyOnWriteArrayList（add + remove(0)，每次都复制整个数组）与无锁环形缓冲区对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class LogHistoryBenchmark {
+    private static final int MAX_CACHE_SIZE = 200;
+    private static final String MESSAGE = "[INFO] MonitorService - Detected app change: Visual Studio Code\n";
+
+    private CopyOnWriteArrayList<String> copyOnWrite;
+    private LogRingBuffer<String> ringBuffer;
+
+    @Setup
+    public void setup() {
+        copyOnWrite = new CopyOnWriteArrayList<>();
+        ringBuffer = new LogRingBuffer<>(MAX_CACHE_SIZE);
+    }
+
+    @Benchmark
+    public void copyOnWriteList() {
+        copyOnWrite.add(MESSAGE);
+        if (copyOnWrite.size() > MAX_CACHE_SIZE) {
+            copyOnWrite.remove(0);
+        }
+    }
+
+    @Benchmark
+    public long ringBuffer() {
+        return ringBuffer.publish(MESSAGE);
+    }
+}
@@ -0,0 +1,48 @@
+package com.lokins.sleepy.gui.benchmark;
+
+import com.lokins.sleepy.gui.utils.LogManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LogManager.broadcast 在不同订阅者数量下的开销（包含历史缓存的维护和写入各订阅者的缓冲区）
+ * <p>
+ * 回调在订阅者自己的线程上执行，不计入 broadcast 的耗时。
+ * <p>
+ * LogManager 是全局静态状态，每组参数都在独立的 fork 中运行。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogManagerBroadcastBenchmark {
+
+    @Param({"0", "1", "8"})
+    public int subscribers;
+
+    private long counter;
+    private final List<LogManager.Subscription> subscriptions = new ArrayList<>();
+    // Blackhole 不能跨线程使用，订阅者线程只做计数
+    private final LongAdder delivered = new LongAdder();
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(LogManager.subscribe(entry -> delivered.increment()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscriptions.forEach(LogManager.Subscription::close);
+        subscriptions.clear();
+    }
+
+    @Benchmark
+    public void broadcast() {
+        LogManager.broadcast("[INFO] MonitorService - Detected app change: " + (counter++) + "\n");
+    }
+}
@@ -0,0 +1,58 @@
+package com.lokins.sleepy.gui.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.lokins.sleepy.gui.network.ReportPayload;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportPayload 序列化的开销：每次经 ObjectMapper 查找序列化器 vs 预先构建的 ObjectWriter 写入复用缓冲区
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReportPayloadSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter payloadWriter;
+    private ByteArrayOutputStream buffer;
+    private ReportPayload payload;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        payloadWriter = new ObjectMapper().writerFor(ReportPayload.class);
+        buffer = new ByteArrayOutputStream(512);
+        payload = new ReportPayload("my-pc", "My PC", "Visual Studio Code",
+                Map.of("detail", "MonitorService.java - Sleepy-GUI"));
+    }
+
+    @Benchmark
+    public ReportPayload createPayload() {
+        return new ReportPayload("my-pc", "My PC", "Visual Studio Code",
+                Map.of("detail", "MonitorService.java - Sleepy-GUI"));
+    }
+
+    @Benchmark
+    public String writeValueAsString() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public int writerIntoReusedBuffer() throws IOException {
+        buffer.reset();
+        payloadWriter.writeValue(buffer, payload);
+        return buffer.size();
+    }
+}
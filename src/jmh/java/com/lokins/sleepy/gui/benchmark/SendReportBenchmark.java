@@ -0,0 +1,71 @@
+package com.lokins.sleepy.gui.benchmark;
+
+import com.lokins.sleepy.gui.network.HttpTransport;
+import com.lokins.sleepy.gui.network.ReportCallback;
+import com.lokins.sleepy.gui.network.ReportPayload;
+import com.lokins.sleepy.gui.network.SleepyClient;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 完整的 SleepyClient.send 路径（构建 payload、序列化、HTTP 往返、回调），
+ * 对端是本机的 JDK HttpServer，只返回 200
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SendReportBenchmark {
+
+    private HttpServer server;
+    private SleepyClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/device/set", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            byte[] body = "{\"success\":true}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        client = new SleepyClient(url, "bench-secret", "Bench PC");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        System.out.println("connections opened: " + HttpTransport.getConnectCount());
+    }
+
+    @Benchmark
+    public boolean sendReport() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicBoolean ok = new AtomicBoolean();
+        client.send(client.createPayload("Visual Studio Code"), new ReportCallback() {
+            @Override
+            public void onSuccess(ReportPayload payload) {
+                ok.set(true);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(ReportPayload payload, boolean retryable) {
+                done.countDown();
+            }
+        });
+        done.await(5, TimeUnit.SECONDS);
+        return ok.get();
+    }
+}
@@ -0,0 +1,59 @@
+package com.lokins.sleepy.gui.benchmark;
+
+import com.lokins.sleepy.gui.utils.TitleSampler;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 窗口标题采样的单次开销与分配：GetWindowTextW 写入缓冲区之后的部分，不依赖 Windows，
+ * 用 -prof gc 查看 gc.alloc.rate.norm（每次采样分配的字节数）。
+ * 标题不变时应为 0；legacyToString 是改动前每次分配 char[] 并经 Native.toString 创建 String 的做法
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TitleSamplerBenchmark {
+    private static final int MAX_TITLE_CHARS = 1024;
+
+    private final char[][] titles = {
+            "main.py - sleepy-gui - Visual Studio Code".toCharArray(),
+            "test.py - sleepy-gui - Visual Studio Code".toCharArray()
+    };
+
+    private TitleSampler sampler;
+    private Memory legacyBuffer;
+    private int next;
+
+    @Setup
+    public void setup() {
+        sampler = new TitleSampler(MAX_TITLE_CHARS);
+        legacyBuffer = new Memory(MAX_TITLE_CHARS * 2L);
+    }
+
+    @Benchmark
+    public String unchangedTitle() {
+        char[] title = titles[0];
+        sampler.buffer().write(0, title, 0, title.length);
+        return sampler.sample(title.length);
+    }
+
+    @Benchmark
+    public String changedTitle() {
+        char[] title = titles[next++ & 1];
+        sampler.buffer().write(0, title, 0, title.length);
+        return sampler.sample(title.length);
+    }
+
+    @Benchmark
+    public String legacyToString() {
+        char[] title = titles[0];
+        legacyBuffer.write(0, title, 0, title.length);
+        legacyBuffer.setChar(title.length * 2L, '\0');
+        char[] buffer = new char[MAX_TITLE_CHARS];
+        legacyBuffer.read(0, buffer, 0, MAX_TITLE_CHARS);
+        return Native.toString(buffer);
+    }
+}
@@ -1,6 +1,9 @@
 package com.lokins.sleepy.gui;
 
+import com.lokins.sleepy.gui.launch.StartupTimer;
 import com.lokins.sleepy.gui.utils.ConfigManager;
+import com.lokins.sleepy.gui.utils.PathUtils;
+import com.lokins.sleepy.gui.utils.Tasks;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
@@ -15,11 +18,15 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SleepyGUI extends Application {
     private static final Logger logger = LoggerFactory.getLogger(SleepyGUI.class);
     private Stage stage;
+    // 托盘创建和首次显示窗口都完成后输出启动计时
+    private final AtomicInteger pendingStartupPhases = new AtomicInteger();
 
     @Override
     public void start(Stage stage) throws IOException {
@@ -31,6 +38,7 @@ public class SleepyGUI extends Application {
         // 2. 解析启动参数：判定是否为静默启动
         Parameters params = getParameters();
         boolean startMinimized = params.getRaw().contains("--minimized");
+        pendingStartupPhases.set((SystemTray.isSupported() ? 1 : 0) + (startMinimized ? 0 : 1));
 
         // 3. 初始化系统托盘 (AWT 线程)
         createTrayIcon();
@@ -38,6 +46,7 @@ public class SleepyGUI extends Application {
         // 4. 加载 JavaFX 界面
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/lokins/sleepy/gui/main-view.fxml"));
         Parent root = loader.load();
+        StartupTimer.mark(StartupTimer.FXML_LOAD);
         Scene scene = new Scene(root);
 
         // 设置图标和基础属性
@@ -50,9 +59,16 @@ public class SleepyGUI extends Application {
             logger.info("检测到 --minimized 参数，程序将以静默模式启动到托盘。");
             // 注意：此时不调用 stage.show()
         } else {
+            stage.setOnShown(event -> {
+                StartupTimer.mark(StartupTimer.FIRST_SHOW);
+                startupPhaseDone();
+            });
             stage.show();
             stage.toFront();
         }
+        if (pendingStartupPhases.get() == 0) {
+            reportStartup();
+        }
 
         // 6. 关闭请求监听：处理“最小化到托盘”还是“直接退出”
         stage.setOnCloseRequest(event -> {
@@ -61,6 +77,20 @@ public class SleepyGUI extends Application {
         });
     }
 
+    private void startupPhaseDone() {
+        if (pendingStartupPhases.decrementAndGet() == 0) {
+            reportStartup();
+        }
+    }
+
+    private void reportStartup() {
+        String summary = StartupTimer.report();
+        if (summary == null) return;
+        logger.info("启动耗时: {}", summary);
+        logger.info("运行时资源: {}", Tasks.describeRuntime());
+        StartupTimer.appendTrace(Path.of(PathUtils.getDataPath("logs", "startup.csv")));
+    }
+
     /**
      * 处理窗口关闭逻辑
      */
@@ -127,9 +157,11 @@ public class SleepyGUI extends Application {
                 }));
 
                 tray.add(trayIcon);
+                StartupTimer.mark(StartupTimer.TRAY_INIT);
             } catch (Exception e) {
                 logger.error("创建托盘图标失败", e);
             }
+            startupPhaseDone();
         });
     }
 
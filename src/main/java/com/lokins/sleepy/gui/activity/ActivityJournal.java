@@ -0,0 +1,296 @@
+package com.lokins.sleepy.gui.activity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地活动记录：保存前台应用的切换历史，离线时也能回答“今天在某个应用里待了多久”
+ * <p>
+ * 每天一个 {@link ActivitySegment}，每条记录 8 字节，应用名通过 {@link AppDictionary} 编码为整数。
+ * 每天几百次切换约占几 KB，一年的数据在几 MB 以内，按天映射后顺序扫描即可完成统计。
+ * 超过保留天数的文件在打开和跨天时删除。
+ * <p>
+ * {@link #switchTo} 开始一条新记录，{@link #touch} 把当前记录的时长更新到给定时刻；
+ * 进程意外退出时，只丢失最后一次 touch 之后的时间。两次 touch 相隔超过 maxGap（系统休眠、进程被挂起）时，
+ * 当前记录在前一次 touch 处结束，之后重新开始计时，因此调用方需要以明显短于 maxGap 的间隔调用 touch。
+ * 所有方法都是线程安全的。
+ */
+public class ActivityJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String DICTIONARY_FILE = "apps.dict";
+
+    private final Path dir;
+    private final ZoneId zone;
+    private final int retentionDays;
+    private final Duration maxGap;
+    private final AppDictionary dictionary;
+
+    // 以下状态由 this 锁保护
+    private ActivitySegment segment;
+    private LocalDate segmentDate;
+    private int currentApp = -1;
+    // 当前记录的开始时间（跨天拆分后为当天零点）
+    private Instant recordStart;
+    private Instant lastTouch;
+    private boolean closed;
+
+    /**
+     * @param dir 保存目录，不存在时创建
+     * @param retentionDays 保留的天数（含今天），小于 1 时不清理
+     * @param maxGap 两次 touch 之间允许的最长间隔，超过时视为期间没有活动
+     */
+    public ActivityJournal(Path dir, ZoneId zone, int retentionDays, Duration maxGap) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.zone = zone;
+        this.retentionDays = retentionDays;
+        this.maxGap = maxGap;
+        this.dictionary = new AppDictionary(dir.resolve(DICTIONARY_FILE));
+        deleteExpired(LocalDate.now(zone));
+    }
+
+    /**
+     * 切换到新的前台应用：结束当前记录，并从 now 开始一条新记录
+     */
+    public synchronized void switchTo(String app, Instant now) {
+        if (closed) return;
+        try {
+            advance(now, false);
+            int id = dictionary.idOf(app);
+            if (id > ActivitySegment.MAX_APP_ID) {
+                logger.warn("应用名数量超出上限，不再记录新应用: {}", app);
+                currentApp = -1;
+                return;
+            }
+            begin(id, now);
+        } catch (IOException e) {
+            logger.error("写入活动记录失败: {}", e.getMessage());
+            currentApp = -1;
+        }
+    }
+
+    /**
+     * 把当前记录的持续时间更新到 now；跨过午夜时当天的记录在零点结束，并在新的一天继续
+     */
+    public synchronized void touch(Instant now) {
+        if (closed) return;
+        try {
+            advance(now, true);
+        } catch (IOException e) {
+            logger.error("写入活动记录失败: {}", e.getMessage());
+            currentApp = -1;
+        }
+    }
+
+    /**
+     * 结束当前记录（例如停止监控），之后的 touch 不再延长它
+     */
+    public synchronized void end(Instant now) {
+        if (closed) return;
+        try {
+            advance(now, false);
+        } catch (IOException e) {
+            logger.error("写入活动记录失败: {}", e.getMessage());
+        }
+        currentApp = -1;
+    }
+
+    /**
+     * @param resumeAfterGap 间隔超过 maxGap 时，是否从 now 起为同一应用开始新记录
+     */
+    private void advance(Instant now, boolean resumeAfterGap) throws IOException {
+        if (currentApp < 0 || now.isBefore(lastTouch)) return;
+        if (maxGap.isPositive() && Duration.between(lastTouch, now).compareTo(maxGap) > 0) {
+            int app = currentApp;
+            extendTo(lastTouch);
+            if (resumeAfterGap) {
+                begin(app, now);
+            } else {
+                currentApp = -1;
+            }
+            return;
+        }
+        extendTo(now);
+        lastTouch = now;
+    }
+
+    private void extendTo(Instant end) throws IOException {
+        LocalDate endDate = LocalDate.ofInstant(end, zone);
+        while (segmentDate.isBefore(endDate)) {
+            LocalDate next = segmentDate.plusDays(1);
+            Instant midnight = next.atStartOfDay(zone).toInstant();
+            segment.updateLastDuration(seconds(recordStart, midnight));
+            if (!end.isAfter(midnight)) {
+                // 正好在零点结束，不在新的一天留下时长为零的记录
+                return;
+            }
+            ensureSegment(next);
+            segment.append(0, 0, currentApp);
+            recordStart = midnight;
+        }
+        segment.updateLastDuration(seconds(recordStart, end));
+    }
+
+    private void begin(int app, Instant now) throws IOException {
+        LocalDate date = LocalDate.ofInstant(now, zone);
+        int second = secondOfDay(date, now);
+        if (currentApp >= 0 && date.equals(segmentDate) && seconds(recordStart, now) == 0) {
+            // 同一秒内再次切换：当前记录没有时长，直接覆盖
+            segment.replaceLast(second, 0, app);
+        } else {
+            ensureSegment(date);
+            segment.append(second, 0, app);
+        }
+        currentApp = app;
+        recordStart = now;
+        lastTouch = now;
+    }
+
+    /**
+     * 某一天的全部记录，按时间顺序排列
+     */
+    public synchronized List<ActivityRecord> records(LocalDate date) {
+        List<ActivityRecord> records = new ArrayList<>();
+        Instant dayStart = date.atStartOfDay(zone).toInstant();
+        scan(date, (startSecond, durationSeconds, appId) -> records.add(new ActivityRecord(
+                appName(appId), dayStart.plusSeconds(startSecond), Duration.ofSeconds(durationSeconds))));
+        return records;
+    }
+
+    /**
+     * [from, to] 期间（含两端）每个应用的累计时长，按时长从多到少排列
+     */
+    public synchronized Map<String, Duration> totals(LocalDate from, LocalDate to) {
+        // 编号连续且数量不多，直接用数组累加，扫描时不产生装箱对象
+        long[] seconds = new long[dictionary.size()];
+        long[] unknown = new long[1];
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            scan(date, (startSecond, durationSeconds, appId) -> {
+                if (appId < seconds.length) {
+                    seconds[appId] += durationSeconds;
+                } else {
+                    unknown[0] += durationSeconds;
+                }
+            });
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < seconds.length; id++) {
+            if (seconds[id] > 0) ids.add(id);
+        }
+        ids.sort(Comparator.comparingLong((Integer id) -> seconds[id]).reversed());
+        Map<String, Duration> totals = new LinkedHashMap<>();
+        for (int id : ids) {
+            totals.merge(appName(id), Duration.ofSeconds(seconds[id]), Duration::plus);
+        }
+        if (unknown[0] > 0) {
+            totals.put("?", Duration.ofSeconds(unknown[0]));
+        }
+        return totals;
+    }
+
+    private void scan(LocalDate date, ActivitySegment.Visitor visitor) {
+        if (date.equals(segmentDate) && segment != null) {
+            segment.forEach(visitor);
+            return;
+        }
+        try {
+            ActivitySegment readOnly = ActivitySegment.openReadOnly(segmentFile(date));
+            if (readOnly != null) readOnly.forEach(visitor);
+        } catch (IOException e) {
+            logger.warn("读取活动记录失败: {} ({})", date, e.getMessage());
+        }
+    }
+
+    private String appName(int appId) {
+        String name = dictionary.nameOf(appId);
+        return name != null ? name : "#" + appId;
+    }
+
+    private void ensureSegment(LocalDate date) throws IOException {
+        if (date.equals(segmentDate)) return;
+        if (segment != null) {
+            segment.close();
+        }
+        segment = ActivitySegment.openForAppend(segmentFile(date));
+        segmentDate = date;
+        deleteExpired(date);
+    }
+
+    /**
+     * 删除早于保留期的记录文件；Windows 上仍被映射的文件删除失败时留到下次
+     */
+    private void deleteExpired(LocalDate today) {
+        if (retentionDays < 1) return;
+        LocalDate oldest = today.minusDays(retentionDays - 1L);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                LocalDate date;
+                try {
+                    date = LocalDate.parse(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                if (date.isBefore(oldest)) {
+                    try {
+                        Files.delete(file);
+                    } catch (IOException e) {
+                        logger.debug("删除过期活动记录失败: {} ({})", name, e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("清理过期活动记录失败: {}", e.getMessage());
+        }
+    }
+
+    private Path segmentFile(LocalDate date) {
+        return dir.resolve(date + SEGMENT_SUFFIX);
+    }
+
+    private int secondOfDay(LocalDate date, Instant instant) {
+        return seconds(date.atStartOfDay(zone).toInstant(), instant);
+    }
+
+    private static int seconds(Instant from, Instant to) {
+        return (int) Math.min(Duration.between(from, to).getSeconds(), ActivitySegment.MAX_SECONDS);
+    }
+
+    /**
+     * 结束当前记录并关闭文件
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        end(Instant.now());
+        closed = true;
+        try {
+            if (segment != null) {
+                segment.force();
+                segment.close();
+            }
+            dictionary.close();
+        } catch (IOException e) {
+            logger.warn("关闭活动记录失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.lokins.sleepy.gui.activity;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 活动记录：从 start 开始在 app 中停留了 duration
+ * @param app 规范应用名（{@code TitleClassifier} 归一化后的结果）
+ * @param start 开始时间，精确到秒
+ * @param duration 持续时间，精确到秒；跨过午夜的停留按天拆成多条
+ */
+public record ActivityRecord(String app, Instant start, Duration duration) {
+}
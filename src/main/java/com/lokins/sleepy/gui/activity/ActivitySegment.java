@@ -0,0 +1,198 @@
+package com.lokins.sleepy.gui.activity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 一天的活动记录，保存在 {@code yyyy-MM-dd.seg} 中并通过内存映射读写
+ * <p>
+ * 文件格式：{@code [magic][version][条数][保留]} 共 16 字节，之后每条记录 8 字节，
+ * 依次是当天零点起的秒数（17 位）、持续秒数（17 位）与应用编号（30 位）。
+ * 追加时先写记录再更新头部的条数，进程崩溃后最多丢失最后一条；
+ * 当前记录的时长在原处更新，不产生新记录。
+ * <p>
+ * 映射区域不够时按倍数扩大，文件长度即映射长度，末尾未用的部分为零；
+ * 不在关闭时截短，因为 Windows 上存在映射的文件不能改变长度，而映射要等 GC 才会释放。
+ */
+final class ActivitySegment implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ActivitySegment.class);
+
+    private static final int MAGIC = 0x534C414A; // "SLAJ"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 8;
+    private static final int COUNT_OFFSET = 8;
+    private static final int INITIAL_SIZE = 4096;
+
+    // 一天最长 25 小时（夏令时切换），17 位足够
+    static final int MAX_SECONDS = (1 << 17) - 1;
+    static final int MAX_APP_ID = (1 << 30) - 1;
+
+    /**
+     * 逐条读取记录
+     */
+    interface Visitor {
+        void visit(int startSecond, int durationSeconds, int appId);
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final boolean writable;
+    private MappedByteBuffer buffer;
+    private int count;
+
+    private ActivitySegment(Path file, FileChannel channel, MappedByteBuffer buffer, boolean writable, int count) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.writable = writable;
+        this.count = count;
+    }
+
+    /**
+     * 打开当天的段用于追加，文件不存在时创建；头部损坏的文件改名为 {@code .bad} 后重新创建
+     */
+    static ActivitySegment openForAppend(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size == 0) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SIZE);
+            buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(COUNT_OFFSET, 0);
+            return new ActivitySegment(file, channel, buffer, true, 0);
+        }
+
+        MappedByteBuffer buffer = size >= HEADER_SIZE
+                ? channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_SIZE))
+                : null;
+        if (buffer == null || !validHeader(buffer)) {
+            channel.close();
+            Path bad = file.resolveSibling(file.getFileName() + ".bad");
+            logger.warn("活动记录文件损坏，已移至 {}", bad.getFileName());
+            Files.move(file, bad, StandardCopyOption.REPLACE_EXISTING);
+            return openForAppend(file);
+        }
+        return new ActivitySegment(file, channel, buffer, true, readCount(buffer));
+    }
+
+    /**
+     * 以只读方式打开已有的段；文件不存在或损坏时返回 null
+     */
+    static ActivitySegment openReadOnly(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+            channel.close();
+            return null;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        // 映射建立后即可关闭通道，映射在缓冲区被回收前一直有效
+        channel.close();
+        if (!validHeader(buffer)) {
+            logger.warn("活动记录文件损坏，已跳过: {}", file.getFileName());
+            return null;
+        }
+        return new ActivitySegment(file, null, buffer, false, readCount(buffer));
+    }
+
+    private static boolean validHeader(MappedByteBuffer buffer) {
+        return buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION;
+    }
+
+    private static int readCount(MappedByteBuffer buffer) {
+        int count = buffer.getInt(COUNT_OFFSET);
+        int capacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        return Math.max(0, Math.min(count, capacity));
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * 追加一条记录
+     */
+    void append(int startSecond, int durationSeconds, int appId) throws IOException {
+        if (!writable) throw new IllegalStateException("Segment is read-only: " + file);
+        int position = HEADER_SIZE + count * RECORD_SIZE;
+        if (position + RECORD_SIZE > buffer.capacity()) {
+            // 旧的映射不显式释放，由 GC 回收
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) buffer.capacity() * 2);
+        }
+        buffer.putLong(position, pack(startSecond, durationSeconds, appId));
+        buffer.putInt(COUNT_OFFSET, ++count);
+    }
+
+    /**
+     * 更新最后一条记录的持续时间
+     */
+    void updateLastDuration(int durationSeconds) {
+        if (count == 0) return;
+        int position = HEADER_SIZE + (count - 1) * RECORD_SIZE;
+        long record = buffer.getLong(position);
+        buffer.putLong(position, pack(startSecond(record), durationSeconds, appId(record)));
+    }
+
+    /**
+     * 覆盖最后一条记录（用于替换时长为零的记录）
+     */
+    void replaceLast(int startSecond, int durationSeconds, int appId) {
+        if (count == 0) return;
+        buffer.putLong(HEADER_SIZE + (count - 1) * RECORD_SIZE, pack(startSecond, durationSeconds, appId));
+    }
+
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < count; i++) {
+            long record = buffer.getLong(HEADER_SIZE + i * RECORD_SIZE);
+            visitor.visit(startSecond(record), durationSeconds(record), appId(record));
+        }
+    }
+
+    /**
+     * 把映射内容写回磁盘（通常不需要：进程退出后页缓存中的修改仍会由系统写入文件）
+     */
+    void force() {
+        if (writable) buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    static long pack(int startSecond, int durationSeconds, int appId) {
+        return ((long) clamp(startSecond, MAX_SECONDS) << 47)
+                | ((long) clamp(durationSeconds, MAX_SECONDS) << 30)
+                | clamp(appId, MAX_APP_ID);
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    static int startSecond(long record) {
+        return (int) (record >>> 47);
+    }
+
+    static int durationSeconds(long record) {
+        return (int) ((record >>> 30) & MAX_SECONDS);
+    }
+
+    static int appId(long record) {
+        return (int) (record & MAX_APP_ID);
+    }
+}
@@ -0,0 +1,103 @@
+package com.lokins.sleepy.gui.activity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 应用名字典：活动记录中只保存应用的整数编号，编号与名称的对应关系保存在 apps.dict
+ * <p>
+ * 文件只追加，第 n 条即编号 n，每条格式为 {@code [unsigned short 长度][UTF-8 名称]}。
+ * 新名称先写入字典再被记录引用；崩溃时写了一半的尾部在下次打开时截掉。
+ */
+final class AppDictionary implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AppDictionary.class);
+
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private final FileChannel channel;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private long size;
+
+    AppDictionary(Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+    }
+
+    private void load() throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(fileSize, Integer.MAX_VALUE - 8));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // 读满为止
+        }
+        buffer.flip();
+        while (buffer.remaining() >= 2) {
+            int length = Short.toUnsignedInt(buffer.getShort(buffer.position()));
+            if (buffer.remaining() < 2 + length) break;
+            buffer.position(buffer.position() + 2);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        size = buffer.position();
+        if (size != fileSize) {
+            logger.warn("应用名字典尾部损坏，已截断: {} -> {} bytes", fileSize, size);
+            channel.truncate(size);
+        }
+    }
+
+    private void add(String name) {
+        // 同名条目（截断后的长名称可能重复）以第一条为准
+        ids.putIfAbsent(name, names.size());
+        names.add(name);
+    }
+
+    /**
+     * 返回应用名的编号，第一次出现时追加到字典
+     */
+    int idOf(String name) throws IOException {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_NAME_BYTES);
+        ByteBuffer entry = ByteBuffer.allocate(2 + length);
+        entry.putShort((short) length).put(bytes, 0, length).flip();
+        while (entry.hasRemaining()) {
+            size += channel.write(entry, size);
+        }
+        int newId = names.size();
+        names.add(name);
+        ids.put(name, newId);
+        return newId;
+    }
+
+    /**
+     * 编号对应的应用名，未知编号返回 null
+     */
+    String nameOf(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : null;
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,8 +1,11 @@
 package com.lokins.sleepy.gui.controller;
 
+import com.lokins.sleepy.gui.network.CircuitBreaker;
 import com.lokins.sleepy.gui.network.SleepyClient;
 import com.lokins.sleepy.gui.service.MonitorService;
 import com.lokins.sleepy.gui.utils.ConfigManager;
+import com.lokins.sleepy.gui.utils.TaskScope;
+import com.lokins.sleepy.gui.utils.Tasks;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -11,9 +14,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeoutException;
 
 public class ConnectViewController {
     private static final Logger logger = LoggerFactory.getLogger(ConnectViewController.class);
+    // 测试连接最多等待的时间，超过即视为失败
+    private static final Duration TEST_CONNECTION_TIMEOUT = Duration.ofSeconds(8);
 
     @FXML private TextField serverUrlField;
     @FXML private PasswordField secretField;
@@ -78,6 +86,9 @@ public class ConnectViewController {
 
         // 启动逻辑
         SleepyClient client = new SleepyClient(url, secret, device);
+        // 熔断状态变化时提示用户，避免服务器不可达时界面仍显示“运行中”
+        client.getCircuitBreaker().addListener(state ->
+                Platform.runLater(() -> statusLabel.setText(describeCircuit(state))));
         monitorService = new MonitorService(client, (appName) -> {
             Platform.runLater(() -> statusLabel.setText("正在运行: " + appName));
         });
@@ -95,6 +106,14 @@ public class ConnectViewController {
         logger.info(">>> 监控已手动停止");
     }
 
+    private static String describeCircuit(CircuitBreaker.State state) {
+        return switch (state) {
+            case OPEN -> "状态: 服务器不可达，暂停上报";
+            case HALF_OPEN -> "状态: 正在重新探测服务器...";
+            case CLOSED -> "状态: 服务器已恢复，运行中";
+        };
+    }
+
     private void updateUIState() {
         if (isRunning) {
             startBtn.setText("停止监控");
@@ -126,14 +145,20 @@ public class ConnectViewController {
         testConnBtn.setText("测试中...");
 
         String finalUrl1 = url;
-        new Thread(() -> {
+        Tasks.start("Sleepy-TestConnection", () -> {
             boolean success = false;
-            try {
+            // 到期时取消作用域，进行中的请求随之中止，不必等完连接和读取超时
+            try (TaskScope scope = TaskScope.open("test-connection")) {
                 // 2. 使用锁定的 url 变量
                 SleepyClient testClient = new SleepyClient(finalUrl1, "", "");
-                success = testClient.ping();
+                TaskScope.Subtask<Boolean> ping = scope.fork("ping", testClient::ping);
+                scope.joinUntil(Instant.now().plus(TEST_CONNECTION_TIMEOUT));
+                scope.throwIfFailed();
+                success = ping.get();
+            } catch (TimeoutException e) {
+                logger.warn("测试连接超时: {}", finalUrl1);
             } catch (Exception e) {
-                System.err.println("测试连接失败: " + e.getMessage());
+                logger.warn("测试连接失败: {}", finalUrl1, e);
             }
 
             // 3. 回到主线程更新 UI
@@ -148,7 +173,7 @@ public class ConnectViewController {
                     showAlert(Alert.AlertType.ERROR, "失败", "无法连接到服务器，请检查地址或网络。");
                 }
             });
-        }).start();
+        });
     }
 
     private void showStatus(String message, String color) {
@@ -180,7 +205,7 @@ public class ConnectViewController {
             config.set("connection", "secret", secret);
             config.set("connection", "device_name", deviceName);
 
-            // 执行持久化，写入 .sleepy/config.ini
+            // 执行持久化，由后台线程写入 .sleepy/config.ini
             config.save();
 
             showAlert(Alert.AlertType.INFORMATION, "保存成功", "连接配置已持久化到本地。");
@@ -0,0 +1,57 @@
+package com.lokins.sleepy.gui.controller;
+
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 后台线程写入、FX 线程每帧合并一次的列表缓冲
+ * <p>
+ * 一帧内积压的元素合并为一次追加；超过上限时从最早的开始一次删除，
+ * 一帧内就超过上限的部分最终也会被删掉，直接跳过
+ */
+final class FrameBatchedList<T> {
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final ObservableList<T> target;
+    private final int maxSize;
+
+    FrameBatchedList(ObservableList<T> target, int maxSize) {
+        this.target = target;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 任意线程调用
+     */
+    void addAll(Collection<? extends T> items) {
+        pending.addAll(items);
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * 把积压的元素一次性加入列表，在 FX 线程调用
+     * @return 本次处理的元素数
+     */
+    int flush() {
+        List<T> batch = new ArrayList<>();
+        T item;
+        while ((item = pending.poll()) != null) {
+            batch.add(item);
+        }
+        if (batch.isEmpty()) return 0;
+
+        int from = Math.max(0, batch.size() - maxSize);
+        int overflow = target.size() + batch.size() - from - maxSize;
+        if (overflow > 0) {
+            target.remove(0, overflow);
+        }
+        target.addAll(batch.subList(from, batch.size()));
+        return batch.size();
+    }
+}
@@ -1,46 +1,313 @@
 package com.lokins.sleepy.gui.controller;
 
+import ch.qos.logback.classic.Level;
+import com.lokins.sleepy.gui.logsearch.LogHit;
+import com.lokins.sleepy.gui.logsearch.LogIndex;
+import com.lokins.sleepy.gui.logsearch.LogQuery;
+import com.lokins.sleepy.gui.utils.LogEntry;
 import com.lokins.sleepy.gui.utils.LogManager;
+import com.lokins.sleepy.gui.utils.Tasks;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TextField;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public class LogViewController {
-    @FXML private TextArea logTextArea;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
-    // 设置最大保存行数，防止内存溢出
-    private static final int MAX_LOG_LINES = 1000;
+/**
+ * 日志页
+ * <p>
+ * 使用 ListView 虚拟化显示，只为可见行创建单元格，渲染开销与保留的日志条数无关；
+ * 日志按结构化的 {@link LogEntry} 保存，级别筛选通过 FilteredList 即时生效。
+ * 搜索框通过 {@link LogIndex} 检索磁盘上的全部日志文件，结果暂时替换列表内容，实时日志在后台继续累积。
+ * <p>
+ * 只在页面显示时接收日志：切走或窗口隐藏时暂停订阅，回来时补上暂停期间仍在 LogManager 缓冲区中的部分。
+ */
+public class LogViewController implements ViewLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(LogViewController.class);
+
+    @FXML private ListView<LogEntry> logListView;
+    @FXML private ChoiceBox<String> levelFilter;
+    @FXML private CheckBox autoScrollCheck;
+    @FXML private TextField searchField;
+    @FXML private ChoiceBox<String> rangeChoice;
+    @FXML private Button liveBtn;
+    @FXML private Label searchStatus;
+
+    // 最多保留的日志条数，超出后从最早的开始删除
+    private static final int MAX_LOG_LINES = 100_000;
+    private static final double ROW_HEIGHT = 20;
+    private static final List<String> LEVEL_OPTIONS = List.of("ALL", "DEBUG", "INFO", "WARN", "ERROR");
+    private static final List<String> LEVEL_STYLES = List.of("log-debug", "log-info", "log-warn", "log-error");
+    private static final List<String> RANGE_OPTIONS = List.of("最近 1 小时", "今天", "最近 7 天", "最近 30 天", "全部");
+    private static final int SEARCH_LIMIT = 5000;
+    // 每秒汇总一次单帧渲染耗时（DEBUG 级别），默认关闭，用 -Dsleepy.logview.frameStats=true 开启
+    private static final boolean FRAME_STATS = Boolean.getBoolean("sleepy.logview.frameStats");
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    // 建立索引可能需要读取大量文件，放到后台线程，同一时刻只执行一个检索
+    private static final ExecutorService searchExecutor = Tasks.newSerialExecutor("Sleepy-LogSearch");
+
+    private final ObservableList<LogEntry> entries = FXCollections.observableArrayList();
+    private final FilteredList<LogEntry> filtered = new FilteredList<>(entries);
+    private final ObservableList<LogEntry> searchResults = FXCollections.observableArrayList();
+    private final FilteredList<LogEntry> filteredResults = new FilteredList<>(searchResults);
+    private boolean showingSearch;
+
+    // 日志线程写入，FX 线程每帧取出一次
+    private final FrameBatchedList<LogEntry> pending = new FrameBatchedList<>(entries, MAX_LOG_LINES);
+    private final AtomicBoolean timerRunning = new AtomicBoolean();
+    private final FrameStats frameStats = FRAME_STATS ? new FrameStats() : null;
+    private LogManager.Subscription subscription;
+
+    private final AnimationTimer renderTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (frameStats != null) {
+                long start = System.nanoTime();
+                int lines = flushPending();
+                frameStats.record(lines, System.nanoTime() - start);
+            } else {
+                flushPending();
+            }
+
+            if (!pending.hasPending()) {
+                // 没有积压时停止计时器，空闲时不占用每一帧
+                stop();
+                timerRunning.set(false);
+                // 停止前可能又有新日志进入且因标记未释放而没有重新启动
+                if (pending.hasPending() && timerRunning.compareAndSet(false, true)) {
+                    start();
+                }
+            }
+        }
+    };
 
     @FXML
     public void initialize() {
-        // 订阅全局日志流
-        LogManager.subscribe(message -> {
-            // 确保在 JavaFX UI 线程更新
-            Platform.runLater(() -> {
-                if (logTextArea != null) {
-                    // 1. 检查当前行数
-                    String[] lines = logTextArea.getText().split("\n");
-                    if (lines.length > MAX_LOG_LINES) {
-                        // 如果超过限制，删掉前 100 行（分批删除效率更高）
-                        int endPos = 0;
-                        for (int i = 0; i < 100 && i < lines.length; i++) {
-                            endPos += lines[i].length() + 1;
-                        }
-                        logTextArea.deleteText(0, endPos);
-                    }
-
-                    // 2. 追加新日志
-                    logTextArea.appendText(message);
-
-                    // 3. 自动滚动到底部
-                    logTextArea.setScrollTop(Double.MAX_VALUE);
+        logListView.setItems(filtered);
+        // 固定行高，ListView 不需要逐行测量
+        logListView.setFixedCellSize(ROW_HEIGHT);
+        logListView.setCellFactory(view -> new LogCell());
+        logListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        logListView.setOnKeyPressed(event -> {
+            if (event.isShortcutDown() && event.getCode() == KeyCode.C) {
+                copySelection();
+            }
+        });
+
+        levelFilter.getItems().setAll(LEVEL_OPTIONS);
+        levelFilter.setValue("ALL");
+        levelFilter.valueProperty().addListener((obs, oldValue, value) -> applyFilter(value));
+        rangeChoice.getItems().setAll(RANGE_OPTIONS);
+        rangeChoice.setValue("今天");
+    }
+
+    @Override
+    public void onActivate() {
+        if (subscription != null) {
+            subscription.resume();
+            return;
+        }
+        // 订阅全局日志流：按批入队，真正的界面更新合并到下一帧；
+        // 界面跟不上时丢弃最旧的，反正超过上限的部分也会被删掉
+        LogManager.Options options = LogManager.Options.defaults("log-view")
+                .withBufferSize(MAX_LOG_LINES)
+                .withPolicy(LogManager.OverflowPolicy.DROP_OLDEST);
+        subscription = LogManager.subscribe(options, batch -> {
+            pending.addAll(batch);
+            if (timerRunning.compareAndSet(false, true)) {
+                // 确保在 JavaFX UI 线程启动
+                Platform.runLater(renderTimer::start);
+            }
+        });
+    }
+
+    @Override
+    public void onDeactivate() {
+        if (subscription != null) {
+            subscription.pause();
+        }
+    }
+
+    private void applyFilter(String option) {
+        Level min = minLevel(option);
+        Predicate<LogEntry> predicate =
+                min == null ? null : entry -> entry.getLevel().isGreaterOrEqual(min);
+        filtered.setPredicate(predicate);
+        filteredResults.setPredicate(predicate);
+    }
+
+    private static Level minLevel(String option) {
+        return option == null || "ALL".equals(option) ? null : Level.toLevel(option);
+    }
+
+    @FXML
+    private void handleSearch() {
+        String text = searchField.getText() == null ? "" : searchField.getText().trim();
+        LogQuery query = new LogQuery(rangeStart(rangeChoice.getValue()), Long.MAX_VALUE,
+                minLevel(levelFilter.getValue()), text, SEARCH_LIMIT);
+        searchStatus.setText("正在检索...");
+
+        searchExecutor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                List<LogHit> hits = LogIndex.getInstance().search(query);
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                List<LogEntry> results = new ArrayList<>(hits.size());
+                // 命中结果从新到旧，列表按时间正序显示
+                for (int i = hits.size() - 1; i >= 0; i--) {
+                    LogHit hit = hits.get(i);
+                    results.add(LogEntry.of(hit.timestamp(), hit.level(), hit.loggerName(), hit.message()));
                 }
-            });
+                Platform.runLater(() -> showSearchResults(results, elapsedMillis));
+            } catch (Exception e) {
+                logger.error("日志检索失败", e);
+                Platform.runLater(() -> searchStatus.setText("检索失败: " + e.getMessage()));
+            }
         });
     }
 
+    private static long rangeStart(String option) {
+        long now = System.currentTimeMillis();
+        if (option == null) return Long.MIN_VALUE;
+        return switch (option) {
+            case "最近 1 小时" -> now - 3_600_000L;
+            case "今天" -> LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            case "最近 7 天" -> now - 7 * 86_400_000L;
+            case "最近 30 天" -> now - 30 * 86_400_000L;
+            default -> Long.MIN_VALUE;
+        };
+    }
+
+    private void showSearchResults(List<LogEntry> results, long elapsedMillis) {
+        searchResults.setAll(results);
+        showingSearch = true;
+        logListView.setItems(filteredResults);
+        liveBtn.setDisable(false);
+        searchStatus.setText(String.format("找到 %d 条%s，用时 %d ms", results.size(),
+                results.size() >= SEARCH_LIMIT ? "（仅显示最新的部分）" : "", elapsedMillis));
+        if (!filteredResults.isEmpty()) {
+            logListView.scrollTo(filteredResults.size() - 1);
+        }
+    }
+
+    @FXML
+    private void showLive() {
+        showingSearch = false;
+        searchResults.clear();
+        logListView.setItems(filtered);
+        liveBtn.setDisable(true);
+        searchStatus.setText("");
+        if (!filtered.isEmpty()) {
+            logListView.scrollTo(filtered.size() - 1);
+        }
+    }
+
+    /**
+     * 把本帧之前积压的日志一次性加入列表
+     * @return 本帧处理的日志条数
+     */
+    private int flushPending() {
+        int lines = pending.flush();
+        if (lines == 0) return 0;
+
+        if (!showingSearch && autoScrollCheck.isSelected() && !filtered.isEmpty()) {
+            logListView.scrollTo(filtered.size() - 1);
+        }
+        return lines;
+    }
+
+    private void copySelection() {
+        StringBuilder text = new StringBuilder();
+        for (LogEntry selected : logListView.getSelectionModel().getSelectedItems()) {
+            text.append(selected.getText());
+        }
+        if (text.length() == 0) return;
+        ClipboardContent content = new ClipboardContent();
+        content.putString(text.toString());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
     @FXML
     private void clearLog() {
-        logTextArea.clear();
+        entries.clear();
+    }
+
+    private static final class LogCell extends ListCell<LogEntry> {
+        @Override
+        protected void updateItem(LogEntry item, boolean empty) {
+            super.updateItem(item, empty);
+            getStyleClass().removeAll(LEVEL_STYLES);
+            if (empty || item == null) {
+                setText(null);
+                return;
+            }
+            setText(TIME_FORMAT.format(Instant.ofEpochMilli(item.getTimestamp()))
+                    + " [" + item.getLevel() + "] " + item.getShortLoggerName() + " - " + item.getMessage());
+            getStyleClass().add(styleOf(item.getLevel()));
+        }
+
+        private static String styleOf(Level level) {
+            if (level.isGreaterOrEqual(Level.ERROR)) return "log-error";
+            if (level.isGreaterOrEqual(Level.WARN)) return "log-warn";
+            if (level.isGreaterOrEqual(Level.INFO)) return "log-info";
+            return "log-debug";
+        }
+    }
+
+    /**
+     * 每秒汇总一次 FX 线程上的渲染耗时（DEBUG 级别），用于观察突发日志下的单帧开销；
+     * 汇总本身也是一条日志，会进入列表，所以只在开启 {@link #FRAME_STATS} 时使用
+     */
+    private static final class FrameStats {
+        private long windowStart = System.nanoTime();
+        private int frames;
+        private long lines;
+        private long totalNanos;
+        private long maxNanos;
+
+        void record(int frameLines, long nanos) {
+            frames++;
+            lines += frameLines;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+
+            long now = System.nanoTime();
+            if (now - windowStart < 1_000_000_000L) return;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Log view: {} lines in {} frames, avg {} us/frame, max {} us",
+                        lines, frames, totalNanos / frames / 1000, maxNanos / 1000);
+            }
+            windowStart = now;
+            frames = 0;
+            lines = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
     }
-}
\ No newline at end of file
+}
@@ -3,15 +3,11 @@ package com.lokins.sleepy.gui.controller;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.control.*;
 import javafx.scene.layout.StackPane;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-
 public class MainController {
     private static final Logger logger = LoggerFactory.getLogger(MainController.class);
 
@@ -23,6 +19,7 @@ public class MainController {
     @FXML private ToggleButton navSettings;
 
     private final ToggleGroup navGroup = new ToggleGroup();
+    private ViewRegistry views;
 
     @FXML
     public void initialize() {
@@ -31,9 +28,31 @@ public class MainController {
         navLog.setToggleGroup(navGroup);
         navSettings.setToggleGroup(navGroup);
 
+        // 每个页面只加载一次，切换时复用
+        views = new ViewRegistry(contentArea)
+                .register("connect", "/com/lokins/sleepy/gui/ConnectView.fxml")
+                .register("log", "/com/lokins/sleepy/gui/LogView.fxml")
+                .register("settings", "/com/lokins/sleepy/gui/SettingsView.fxml");
+
         // 默认选中第一个并加载
         navConnect.setSelected(true);
-        loadView("/com/lokins/sleepy/gui/ConnectView.fxml");
+        views.show("connect");
+        views.preloadAfterFirstFrame();
+
+        // 主窗口隐藏到托盘时停用当前页面，重新显示时恢复
+        contentArea.sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene == null) return;
+            scene.windowProperty().addListener((o, oldWindow, window) -> {
+                if (window == null) return;
+                window.showingProperty().addListener((p, wasShowing, showing) -> {
+                    if (showing) {
+                        views.activate();
+                    } else {
+                        views.deactivate();
+                    }
+                });
+            });
+        });
     }
 
     @FXML
@@ -49,9 +68,9 @@ public class MainController {
         logger.info("切换视图到: {}", text);
 
         switch (text) {
-            case "连接服务器" -> loadView("/com/lokins/sleepy/gui/ConnectView.fxml");
-            case "实时日志" -> loadView("/com/lokins/sleepy/gui/LogView.fxml");
-            case "设置" -> loadView("/com/lokins/sleepy/gui/SettingsView.fxml");
+            case "连接服务器" -> views.show("connect");
+            case "实时日志" -> views.show("log");
+            case "设置" -> views.show("settings");
         }
     }
 
@@ -64,20 +83,4 @@ public class MainController {
         Platform.exit();
         System.exit(0);
     }
-
-    private void loadView(String fxmlPath) {
-        try {
-            // 注意：请核对这里的路径是否与你 resources 下的文件路径完全一致
-            var resource = getClass().getResource(fxmlPath);
-            if (resource == null) {
-                logger.error("找不到 FXML 文件: {}", fxmlPath);
-                return;
-            }
-            FXMLLoader loader = new FXMLLoader(resource);
-            Parent view = loader.load();
-            contentArea.getChildren().setAll(view);
-        } catch (IOException e) {
-            logger.error("页面加载异常: {}", fxmlPath, e);
-        }
-    }
 }
\ No newline at end of file
@@ -82,7 +82,7 @@ public class SettingsViewController {
             config.set("settings", "minimize_to_tray", String.valueOf(isMinimizeToTray));
             config.set("settings", "interval", intervalValue);
 
-            // 2. 写入文件
+            // 2. 写入文件（后台线程异步落盘）
             config.save();
 
             // 3. 同步系统注册表
@@ -0,0 +1,24 @@
+package com.lokins.sleepy.gui.controller;
+
+/**
+ * 页面控制器的可选生命周期回调
+ * <p>
+ * 页面由 {@link ViewRegistry} 缓存，只加载一次，之后在切换时反复显示和隐藏；
+ * 需要订阅数据源的控制器应在 {@link #onActivate()} 中订阅、在 {@link #onDeactivate()} 中暂停或取消，
+ * 而不是放在 initialize 中，这样隐藏的页面（包括主窗口最小化到托盘时）不再处理更新。
+ * 两个回调都在 JavaFX 线程上调用，且总是成对出现。
+ */
+public interface ViewLifecycle {
+
+    /**
+     * 页面成为当前显示的页面
+     */
+    default void onActivate() {
+    }
+
+    /**
+     * 页面被切走，或者主窗口被隐藏
+     */
+    default void onDeactivate() {
+    }
+}
@@ -0,0 +1,181 @@
+package com.lokins.sleepy.gui.controller;
+
+import com.lokins.sleepy.gui.utils.Tasks;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.layout.Pane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 页面注册表：每个 FXML 页面只加载一次，缓存根节点和控制器，切换页面时直接替换容器内容
+ * <p>
+ * 首帧渲染之后，尚未打开过的页面在后台线程中预加载（解析 FXML、创建控件与控制器），
+ * 完成后交回 JavaFX 线程放入缓存。此时页面还没有加入场景，在其它线程创建节点是允许的；
+ * 用户先点到了某个页面时，该页面在 JavaFX 线程同步加载，后台的结果直接丢弃。
+ * <p>
+ * 控制器实现了 {@link ViewLifecycle} 时，显示和隐藏页面会调用对应的回调。除注册外，所有方法都只能在 JavaFX 线程调用。
+ */
+public class ViewRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ViewRegistry.class);
+
+    private static final ExecutorService preloadExecutor = Tasks.newSerialExecutor("Sleepy-ViewPreload");
+
+    /**
+     * 已加载的页面
+     * @param root 根节点
+     * @param controller FXML 中声明的控制器，没有时为 null
+     */
+    public record LoadedView(Parent root, Object controller) {
+    }
+
+    private final Pane container;
+    // 注册顺序即预加载顺序
+    private final Map<String, String> fxmlPaths = new LinkedHashMap<>();
+    private final Map<String, LoadedView> cache = new HashMap<>();
+    private String currentKey;
+    private boolean active;
+
+    /**
+     * @param container 显示页面的容器，切换时替换它的全部子节点
+     */
+    public ViewRegistry(Pane container) {
+        this.container = container;
+    }
+
+    public ViewRegistry register(String key, String fxmlPath) {
+        fxmlPaths.put(key, fxmlPath);
+        return this;
+    }
+
+    /**
+     * 显示指定页面：先停用当前页面，再激活新页面
+     * @return 页面加载失败时返回 false，当前页面保持不变
+     */
+    public boolean show(String key) {
+        if (key.equals(currentKey)) {
+            return true;
+        }
+        LoadedView view = getOrLoad(key);
+        if (view == null) {
+            return false;
+        }
+
+        deactivate();
+        container.getChildren().setAll(view.root());
+        currentKey = key;
+        activate();
+        return true;
+    }
+
+    /**
+     * 激活当前页面（例如主窗口重新显示时）
+     */
+    public void activate() {
+        if (active || currentKey == null) return;
+        active = true;
+        lifecycle(currentKey).ifPresent(ViewLifecycle::onActivate);
+    }
+
+    /**
+     * 停用当前页面但保持它在容器中（例如主窗口隐藏到托盘时）
+     */
+    public void deactivate() {
+        if (!active) return;
+        active = false;
+        lifecycle(currentKey).ifPresent(ViewLifecycle::onDeactivate);
+    }
+
+    /**
+     * 等到下一帧渲染完成后，在后台预加载所有尚未加载的页面
+     */
+    public void preloadAfterFirstFrame() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                preload();
+            }
+        }.start();
+    }
+
+    private void preload() {
+        List<Map.Entry<String, String>> pending = new ArrayList<>();
+        for (Map.Entry<String, String> entry : fxmlPaths.entrySet()) {
+            if (!cache.containsKey(entry.getKey())) {
+                pending.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (pending.isEmpty()) return;
+
+        preloadExecutor.submit(() -> {
+            for (Map.Entry<String, String> entry : pending) {
+                long start = System.nanoTime();
+                LoadedView view;
+                try {
+                    view = load(entry.getValue());
+                } catch (Exception e) {
+                    // 个别控件要求在 JavaFX 线程创建时，留到第一次打开时再加载
+                    logger.warn("后台预加载页面失败，将在打开时加载: {} ({})", entry.getValue(), e.toString());
+                    continue;
+                }
+                if (view == null) continue;
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                logger.debug("预加载页面 {} 用时 {} ms", entry.getKey(), elapsedMillis);
+                Platform.runLater(() -> cache.putIfAbsent(entry.getKey(), view));
+            }
+        });
+    }
+
+    private LoadedView getOrLoad(String key) {
+        LoadedView view = cache.get(key);
+        if (view != null) return view;
+
+        String fxmlPath = fxmlPaths.get(key);
+        if (fxmlPath == null) {
+            logger.error("未注册的页面: {}", key);
+            return null;
+        }
+        try {
+            view = load(fxmlPath);
+        } catch (IOException e) {
+            logger.error("页面加载异常: {}", fxmlPath, e);
+            return null;
+        }
+        if (view != null) cache.put(key, view);
+        return view;
+    }
+
+    private LoadedView load(String fxmlPath) throws IOException {
+        URL resource = ViewRegistry.class.getResource(fxmlPath);
+        if (resource == null) {
+            logger.error("找不到 FXML 文件: {}", fxmlPath);
+            return null;
+        }
+        FXMLLoader loader = new FXMLLoader(resource);
+        // 预加载线程的上下文类加载器不一定是加载本程序的那个（见 Launcher.launchApp）
+        loader.setClassLoader(ViewRegistry.class.getClassLoader());
+        Parent root = loader.load();
+        return new LoadedView(root, loader.getController());
+    }
+
+    private Optional<ViewLifecycle> lifecycle(String key) {
+        LoadedView view = cache.get(key);
+        if (view != null && view.controller() instanceof ViewLifecycle lifecycle) {
+            return Optional.of(lifecycle);
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,75 @@
+package com.lokins.sleepy.gui.launch;
+
+import com.lokins.sleepy.gui.network.SleepyClient;
+import com.lokins.sleepy.gui.service.MonitorService;
+import com.lokins.sleepy.gui.utils.ConfigManager;
+import com.lokins.sleepy.gui.utils.ConfigSnapshot;
+import com.lokins.sleepy.gui.utils.Tasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 无界面模式（{@code java -jar sleepy-gui.jar --headless}）：只运行上报，适合服务器、自助终端和 CI 机器
+ * <p>
+ * 直接从 config.ini 构建 {@link SleepyClient} 与 {@link MonitorService}，不下载 JavaFX，
+ * 也不加载任何 JavaFX / AWT / Swing 类。收到 SIGTERM（或 Ctrl+C）时由关闭钩子停止监控，
+ * 在 {@code [report] shutdown_flush_ms}（默认 2000）内尽量发出尚未发送的上报，其余写入离线队列。
+ */
+public final class HeadlessLauncher {
+    private static final Logger logger = LoggerFactory.getLogger(HeadlessLauncher.class);
+
+    public static final String FLAG = "--headless";
+
+    private HeadlessLauncher() {
+    }
+
+    public static void run() {
+        ConfigSnapshot config;
+        try {
+            config = ConfigManager.getInstance().snapshot();
+        } catch (Exception e) {
+            logger.error("读取配置失败: {}", e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        String url = config.get("server", "url", "");
+        String secret = config.get("auth", "secret", "");
+        String device = config.get("device", "name", "");
+        if (url.isEmpty() || secret.isEmpty() || device.isEmpty()) {
+            logger.error("配置不完整：无界面模式需要 config.ini 中的 [server] url、[auth] secret 与 [device] name");
+            System.exit(2);
+            return;
+        }
+        long flushTimeout = config.getLong("report", "shutdown_flush_ms", 2000);
+
+        MonitorService monitorService = new MonitorService(new SleepyClient(url, secret, device), null);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            logger.info("收到退出信号，正在停止监控...");
+            monitorService.stop(flushTimeout);
+            stopped.countDown();
+        }, "Sleepy-Headless-Shutdown"));
+
+        monitorService.start();
+        logger.info(">>> 无界面模式已启动，设备名: {}，启动用时 {} ms", device, sinceProcessStart());
+        logger.info("运行时资源: {}", Tasks.describeRuntime());
+
+        // 监控相关线程都是守护线程，主线程需要一直等到关闭钩子执行完
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long sinceProcessStart() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis())
+                .orElse(-1L);
+    }
+}
@@ -1,81 +1,160 @@
 package com.lokins.sleepy.gui.launch;
 
 import com.lokins.sleepy.gui.SleepyGUI;
+import com.lokins.sleepy.gui.network.HttpTransport;
+import com.lokins.sleepy.gui.utils.ConfigManager;
+import com.lokins.sleepy.gui.utils.ConfigSnapshot;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okio.BufferedSink;
-import okio.Okio;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Launcher {
     private static final String JFX_VERSION = "21.0.2";
+    // 镜像列表的最后兜底
     private static final String MAVEN_REPO = "https://repo1.maven.org/maven2/org/openjfx/";
 
     private static final String DATA_DIR = System.getProperty("user.home") + File.separator + ".sleepy";
     private static final String LIB_DIR = DATA_DIR + File.separator + "runtime" + File.separator + "javafx" + File.separator;
 
     private static final String[] MODULES = {"javafx-base", "javafx-graphics", "javafx-controls", "javafx-fxml"};
+    // 同时下载的组件数，可通过 -Dsleepy.download.parallelism 调整
+    private static final int DOWNLOAD_PARALLELISM = Integer.getInteger("sleepy.download.parallelism", 4);
+    // 动态 CDS 归档（JDK 19+ 的 -XX:+AutoCreateSharedArchive）的存放目录
+    private static final String CDS_DIR = DATA_DIR + File.separator + "cds";
+    // 子进程启动后等待这么久仍未退出，才认为启动成功并结束启动器进程
+    private static final long CHILD_STARTUP_GRACE_SECONDS = 5;
+    // 标记以 CDS 归档派生的子进程
+    private static final String CDS_CHILD_PROPERTY = "sleepy.cds.child";
+    // 子进程在归档类路径下无法运行时的保留退出码，父进程收到后退回进程内启动
+    private static final int EXIT_ARCHIVE_UNSUPPORTED = 97;
 
     public static void main(String[] args) {
+        // 无界面模式：不探测、不下载 JavaFX；必须在第一次使用 Logger 之前设置，GuiLogAppender 据此不启动
+        if (List.of(args).contains(HeadlessLauncher.FLAG)) {
+            System.setProperty("sleepy.headless", "true");
+            HeadlessLauncher.run();
+            return;
+        }
+
+        StartupTimer.begin();
         autoGenerateScripts();
 
         // 1. 检查本地环境
         try {
             Class.forName("javafx.application.Application");
+            StartupTimer.mark(StartupTimer.JAVAFX_PROBE);
             System.out.println("检测到内置 JavaFX，直接启动...");
             SleepyGUI.main(args);
             return;
         } catch (ClassNotFoundException e) {
-            System.out.println("缺失 JavaFX 运行时，准备显示下载界面...");
+            StartupTimer.mark(StartupTimer.JAVAFX_PROBE);
+            if (Boolean.getBoolean(CDS_CHILD_PROPERTY)) {
+                // 子进程的类路径里应当已有 JavaFX，找不到时交回父进程处理，不再下载或派生
+                System.err.println("子进程中找不到 JavaFX，交由启动器直接启动");
+                System.exit(EXIT_ARCHIVE_UNSUPPORTED);
+            }
         }
 
+        File libDir = new File(LIB_DIR);
+        List<RuntimeDownloader.Artifact> artifacts = runtimeArtifacts();
+        if (RuntimeDownloader.isInstalled(libDir.toPath(), artifacts)) {
+            // 热启动：所有组件都已下载并校验，不显示下载界面、不访问网络，直接启动
+            StartupTimer.mark(StartupTimer.RUNTIME_RESOLVE);
+            try {
+                launchRuntime(libDir, args);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        System.out.println("缺失 JavaFX 运行时，准备显示下载界面...");
+
         // 2. 初始化并显示 Swing 界面
         DownloadProgressUI ui = new DownloadProgressUI();
         ui.show();
 
-        new Thread(() -> {
-            try {
-                File libDir = new File(LIB_DIR);
-                if (!libDir.exists()) {
-                    boolean created = libDir.mkdirs();
-                    System.out.println("创建运行环境目录: " + libDir.getAbsolutePath() + " -> " + created);
-                }
-
-                String osClassifier = getOsClassifier();
-                OkHttpClient client = new OkHttpClient();
+        // 下载在主线程进行：各构件由 RuntimeDownloader 在虚拟线程中并行下载，
+        // 主线程随后进入 launchApp 并阻塞在 JavaFX 启动中，同时维持 JVM 存活（虚拟线程都是守护线程）
+        try {
+            if (!libDir.exists()) {
+                boolean created = libDir.mkdirs();
+                System.out.println("创建运行环境目录: " + libDir.getAbsolutePath() + " -> " + created);
+            }
 
-                int total = MODULES.length * 2;
-                int current = 0;
+            ui.updateStatus("正在选择下载镜像...", 0);
+            downloadRuntime(HttpTransport.forDownloads(), readConfig(), libDir, artifacts, ui);
 
-                for (String module : MODULES) {
-                    current++;
-                    ui.updateStatus("正在下载组件: " + module, (current * 100) / total);
-                    downloadFile(client, module, JFX_VERSION, "", libDir);
+            StartupTimer.mark(StartupTimer.RUNTIME_RESOLVE);
+            ui.updateStatus("加载运行环境中...", 100);
+            ui.close();
 
-                    current++;
-                    ui.updateStatus("正在下载原生驱动: " + module, (current * 100) / total);
-                    downloadFile(client, module, JFX_VERSION, osClassifier, libDir);
-                }
+            launchRuntime(libDir, args);
 
-                ui.updateStatus("加载运行环境中...", 100);
-                Thread.sleep(500);
+        } catch (Exception e) {
+            e.printStackTrace();
+            ui.updateStatus("错误: " + e.getMessage(), 0);
+        }
+    }
 
-                ui.close();
-                launchApp(libDir, args);
+    private static List<RuntimeDownloader.Artifact> runtimeArtifacts() {
+        String osClassifier = getOsClassifier();
+        List<RuntimeDownloader.Artifact> artifacts = new ArrayList<>();
+        for (String module : MODULES) {
+            artifacts.add(new RuntimeDownloader.Artifact(module, JFX_VERSION, ""));
+            artifacts.add(new RuntimeDownloader.Artifact(module, JFX_VERSION, osClassifier));
+        }
+        return artifacts;
+    }
 
-            } catch (Exception e) {
-                e.printStackTrace();
-                ui.updateStatus("错误: " + e.getMessage(), 0);
+    /**
+     * 以已就绪的运行组件启动程序：开启 CDS 时派生子进程，否则（或子进程无法使用归档时）在本进程内启动
+     */
+    private static void launchRuntime(File libDir, String[] args) throws Exception {
+        Path archive = resolveCdsArchive();
+        if (archive != null) {
+            OptionalInt exitCode = launchWithArchive(libDir, archive, args);
+            if (exitCode.isPresent()) {
+                System.exit(exitCode.getAsInt());
             }
-        }).start();
+        }
+        launchApp(libDir, args);
+    }
+
+    /**
+     * 选择镜像并下载缺失或未校验的组件；没有可用镜像时，已有的组件都能作为 zip 打开就先用它们启动
+     */
+    private static void downloadRuntime(OkHttpClient client, ConfigSnapshot config, File libDir,
+                                        List<RuntimeDownloader.Artifact> artifacts, DownloadProgressUI ui) throws Exception {
+        String mirror = new MirrorSelector(client).select(readMirrors(config), artifacts.get(0));
+        if (mirror != null) {
+            AtomicReference<String> lastStatus = new AtomicReference<>("正在下载运行组件...");
+            RuntimeDownloader downloader = new RuntimeDownloader(client, mirror, libDir.toPath(),
+                    resolveCacheDir(config), DOWNLOAD_PARALLELISM);
+            downloader.downloadAll(artifacts, (downloaded, total, status) -> {
+                if (status != null) lastStatus.set(status);
+                int percent = total > 0 ? (int) (downloaded * 100 / total) : 0;
+                ui.updateStatus(String.format("%s (%.1f / %.1f MB)", lastStatus.get(),
+                        downloaded / 1048576.0, total / 1048576.0), Math.min(100, percent));
+            });
+        } else if (RuntimeDownloader.isUsableOffline(libDir.toPath(), artifacts)) {
+            // 旧版本启动器下载的组件还没有校验标记：离线时先用它们启动，下次联网时再校验
+            System.out.println("没有可用的下载镜像，使用已有的运行组件启动");
+        } else {
+            throw new Exception("没有可用的下载镜像，请检查网络或 [runtime] mirrors 配置");
+        }
     }
 
     private static void autoGenerateScripts() {
@@ -115,42 +194,194 @@ public class Launcher {
         }
     }
 
-    private static void downloadFile(OkHttpClient client, String module, String version, String classifier, File dir) throws Exception {
-        String fileName = module + "-" + version + (classifier.isEmpty() ? "" : "-" + classifier) + ".jar";
-        File targetFile = new File(dir, fileName);
+    private static ConfigSnapshot readConfig() {
+        try {
+            return ConfigManager.getInstance().snapshot();
+        } catch (Exception e) {
+            System.err.println("读取配置失败，使用默认下载设置: " + e.getMessage());
+            return ConfigSnapshot.empty();
+        }
+    }
+
+    /**
+     * 镜像按优先级排列：-Dsleepy.mirrors 或 config.ini 的 [runtime] mirrors（逗号分隔，
+     * 支持 http(s):// 与 file://），Maven Central 始终作为最后一个
+     */
+    private static List<String> readMirrors(ConfigSnapshot config) {
+        String configured = System.getProperty("sleepy.mirrors", config.get("runtime", "mirrors", ""));
+        List<String> mirrors = new ArrayList<>();
+        for (String mirror : configured.split(",")) {
+            String trimmed = mirror.trim();
+            if (trimmed.isEmpty()) continue;
+            mirrors.add(trimmed.endsWith("/") ? trimmed : trimmed + "/");
+        }
+        if (!mirrors.contains(MAVEN_REPO)) {
+            mirrors.add(MAVEN_REPO);
+        }
+        return mirrors;
+    }
 
-        if (targetFile.exists() && targetFile.length() > 0) return;
+    /**
+     * 共享缓存目录：-Dsleepy.cache.dir 或 [runtime] cache_dir，设为 none 时不使用缓存；
+     * 默认使用本机所有用户共享的位置，不可写时退回用户目录
+     */
+    private static Path resolveCacheDir(ConfigSnapshot config) {
+        String configured = System.getProperty("sleepy.cache.dir", config.get("runtime", "cache_dir", ""));
+        if ("none".equalsIgnoreCase(configured)) return null;
 
-        String url = MAVEN_REPO + module + "/" + version + "/" + fileName;
-        System.out.println("正在下载: " + fileName + " 至 " + dir.getAbsolutePath());
+        List<Path> shared = new ArrayList<>();
+        if (!configured.isEmpty()) {
+            shared.add(Path.of(configured));
+        } else {
+            String programData = System.getenv("ProgramData");
+            if (getOsClassifier().equals("win") && programData != null) {
+                shared.add(Path.of(programData, "sleepy", "cache"));
+            } else if (!getOsClassifier().equals("win")) {
+                shared.add(Path.of("/var/tmp/sleepy-cache"));
+            }
+        }
 
-        Request request = new Request.Builder().url(url).build();
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) throw new Exception("下载失败: " + response.code());
-            try (BufferedSink sink = Okio.buffer(Okio.sink(targetFile))) {
-                sink.writeAll(response.body().source());
+        for (Path candidate : shared) {
+            try {
+                boolean created = !Files.exists(candidate);
+                Files.createDirectories(candidate);
+                // 只有自己创建的目录才改为 1777，已有目录的权限由创建者决定
+                if (created) RuntimeDownloader.makeSharedDirectory(candidate);
+                if (Files.isWritable(candidate)) return candidate;
+            } catch (Exception e) {
+                // 尝试下一个位置
             }
         }
+        // 用户目录下的缓存只给自己用，保持默认权限
+        Path personal = Path.of(DATA_DIR, "cache");
+        try {
+            Files.createDirectories(personal);
+            return personal;
+        } catch (Exception e) {
+            return null;
+        }
     }
 
     private static void launchApp(File libDir, String[] args) throws Exception {
-        File[] jars = libDir.listFiles((dir, name) -> name.endsWith(".jar"));
         List<URL> urls = new ArrayList<>();
         urls.add(Launcher.class.getProtectionDomain().getCodeSource().getLocation());
-        if (jars != null) {
-            for (File jar : jars) {
-                urls.add(jar.toURI().toURL());
-            }
+        for (File jar : listRuntimeJars(libDir)) {
+            urls.add(jar.toURI().toURL());
         }
 
         URLClassLoader classLoader = new URLClassLoader(urls.toArray(new URL[0]), Launcher.class.getClassLoader().getParent());
         Thread.currentThread().setContextClassLoader(classLoader);
 
         Class<?> mainClass = Class.forName("com.lokins.sleepy.gui.SleepyGUI", true, classLoader);
+        StartupTimer.mark(StartupTimer.CLASSLOADER);
         Method mainMethod = mainClass.getMethod("main", String[].class);
         mainMethod.invoke(null, (Object) args);
     }
 
+    /**
+     * 按文件名排序：CDS 归档会校验类路径，顺序变化会导致归档失效
+     */
+    private static List<File> listRuntimeJars(File libDir) {
+        File[] jars = libDir.listFiles((dir, name) -> name.endsWith(".jar"));
+        if (jars == null) return List.of();
+        Arrays.sort(jars, Comparator.comparing(File::getName));
+        return List.of(jars);
+    }
+
+    /**
+     * 是否使用 CDS 归档：-Dsleepy.cds 或 [runtime] cds，默认关闭（派生第二个 JVM 的收益尚未测量）；
+     * 需要 JDK 19+ 且启动器以 jar 运行。启动参数里已经指定了 -XX:SharedArchiveFile 时尊重用户的设置，不再派生子进程
+     *
+     * @return 归档文件路径（首次运行时尚不存在，由子进程退出时生成），不使用时返回 null
+     */
+    private static Path resolveCdsArchive() {
+        // 优先读取系统属性，热启动时不必为此加载配置
+        String property = System.getProperty("sleepy.cds");
+        boolean enabled = property != null
+                ? Boolean.parseBoolean(property)
+                : readConfig().getBoolean("runtime", "cds", false);
+        if (!enabled || Runtime.version().feature() < 19) return null;
+        if (ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(arg -> arg.startsWith("-XX:SharedArchiveFile"))) {
+            return null;
+        }
+        try {
+            File self = new File(Launcher.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (!self.isFile()) return null;
+            // 不同 JDK 的归档互不兼容，按版本分开存放，避免来回切换时反复重建
+            String jdk = Runtime.version().toString().replaceAll("[^0-9A-Za-z.+-]", "_");
+            Path dir = Path.of(CDS_DIR);
+            Files.createDirectories(dir);
+            return dir.resolve("sleepy-" + jdk + ".jsa");
+        } catch (Exception e) {
+            System.err.println("无法准备 CDS 归档目录: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 以普通类路径（启动器 jar + JavaFX jar）在子进程中启动程序，并附带动态 CDS 归档
+     * <p>
+     * URLClassLoader 加载的类无法写入 CDS 归档，所以改为派生子进程。首次运行时子进程退出时把加载过的类写入归档，
+     * 之后的启动直接映射归档，省去类的解析与校验；归档与当前 JDK 或类路径不匹配时 JVM 会自动重建。
+     * 子进程里 JavaFX 已在类路径上，启动器的探测会直接进入 SleepyGUI，不会再次派生。
+     * <p>
+     * 只有无法派生子进程，或子进程以 {@link #EXIT_ARCHIVE_UNSUPPORTED} 退出时才退回进程内启动；
+     * 其他退出码说明程序本身已经运行过，再在进程内启动一次会重复运行。
+     *
+     * @return 启动器应使用的退出码；为空表示应退回到进程内启动
+     */
+    private static OptionalInt launchWithArchive(File libDir, Path archive, String[] args) {
+        try {
+            File self = new File(Launcher.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            StringBuilder classPath = new StringBuilder(self.getAbsolutePath());
+            for (File jar : listRuntimeJars(libDir)) {
+                classPath.append(File.pathSeparator).append(jar.getAbsolutePath());
+            }
+
+            List<String> command = new ArrayList<>();
+            command.add(ProcessHandle.current().info().command()
+                    .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+            for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                // 调试端口不能被两个进程同时占用；CDS 参数由下面重新指定
+                if (arg.startsWith("-agentlib:jdwp") || arg.startsWith("-XX:SharedArchiveFile")
+                        || arg.startsWith("-XX:+AutoCreateSharedArchive") || arg.startsWith("-Xshare")
+                        || arg.startsWith("-D" + StartupTimer.PREFIX)) {
+                    continue;
+                }
+                command.add(arg);
+            }
+            // 不认识 CDS 参数的 JVM 忽略它们照常启动，而不是以无法区分的退出码失败
+            command.add("-XX:+IgnoreUnrecognizedVMOptions");
+            command.add("-XX:+AutoCreateSharedArchive");
+            command.add("-XX:SharedArchiveFile=" + archive);
+            command.add("-D" + StartupTimer.PREFIX + "cds=" + (Files.exists(archive) ? "on" : "dump"));
+            command.add("-D" + CDS_CHILD_PROPERTY + "=true");
+            command.addAll(StartupTimer.childJvmArguments());
+            command.add("-cp");
+            command.add(classPath.toString());
+            command.add(Launcher.class.getName());
+            command.addAll(List.of(args));
+
+            Process child = new ProcessBuilder(command).inheritIO().start();
+            if (!child.waitFor(CHILD_STARTUP_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                return OptionalInt.of(0);
+            }
+            if (child.exitValue() == EXIT_ARCHIVE_UNSUPPORTED) {
+                System.err.println("子进程无法以 CDS 归档运行，改为直接启动");
+                return OptionalInt.empty();
+            }
+            return OptionalInt.of(child.exitValue());
+        } catch (InterruptedException e) {
+            // 子进程已经启动，不能再在进程内启动一次
+            Thread.currentThread().interrupt();
+            return OptionalInt.of(0);
+        } catch (Exception e) {
+            System.err.println("无法以 CDS 归档启动，改为直接启动: " + e.getMessage());
+            return OptionalInt.empty();
+        }
+    }
+
     private static String getOsClassifier() {
         String os = System.getProperty("os.name").toLowerCase();
         if (os.contains("win")) return "win";
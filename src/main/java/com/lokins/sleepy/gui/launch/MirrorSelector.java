@@ -0,0 +1,88 @@
+package com.lokins.sleepy.gui.launch;
+
+import com.lokins.sleepy.gui.utils.TaskScope;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从有序的镜像列表中选出第一个可用的仓库
+ * <p>
+ * 所有镜像同时探测，每个镜像一个虚拟线程（HTTP 镜像发送 HEAD 请求，file:// 镜像检查文件是否存在），
+ * 然后按列表顺序取第一个通过的，因此排在前面的本地镜像或内网代理优先，
+ * 而一个不可达的镜像最多只耽误一次探测超时。
+ */
+public class MirrorSelector {
+    private static final long PROBE_TIMEOUT_MILLIS = 2000;
+
+    private final OkHttpClient probeClient;
+
+    public MirrorSelector(OkHttpClient client) {
+        this.probeClient = client.newBuilder()
+                .callTimeout(PROBE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * @param mirrors 按优先级排列的仓库地址（以 / 结尾）
+     * @param probe 用于探测的构件，镜像中必须存在
+     * @return 第一个可用的镜像；全部不可用时返回 null
+     */
+    public String select(List<String> mirrors, RuntimeDownloader.Artifact probe) {
+        // 选定镜像后关闭作用域，其余仍在进行的探测连同请求一起取消
+        try (TaskScope scope = TaskScope.open("mirror-probe")) {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < mirrors.size(); i++) {
+                String mirror = mirrors.get(i);
+                CompletableFuture<Boolean> result = new CompletableFuture<>();
+                results.add(result);
+                scope.fork("mirror-" + i, () -> result.complete(isHealthy(mirror, probe)));
+            }
+            for (int i = 0; i < mirrors.size(); i++) {
+                boolean healthy;
+                try {
+                    healthy = results.get(i).get(PROBE_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                } catch (Exception e) {
+                    healthy = false;
+                }
+                if (healthy) {
+                    System.out.println("使用运行时镜像: " + mirrors.get(i));
+                    return mirrors.get(i);
+                }
+                System.out.println("镜像不可用，跳过: " + mirrors.get(i));
+            }
+            return null;
+        }
+    }
+
+    private boolean isHealthy(String mirror, RuntimeDownloader.Artifact probe) {
+        try {
+            if (mirror.startsWith("file:")) {
+                return Files.isRegularFile(Path.of(URI.create(mirror)).resolve(probe.repositoryPath()));
+            }
+            Request request = new Request.Builder()
+                    .url(mirror + probe.repositoryPath())
+                    .head()
+                    .build();
+            Call call = probeClient.newCall(request);
+            try (TaskScope.Registration ignored = TaskScope.onCancel(call::cancel);
+                 Response response = call.execute()) {
+                return response.isSuccessful();
+            }
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,644 @@
+package com.lokins.sleepy.gui.launch;
+
+import com.lokins.sleepy.gui.utils.TaskScope;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipFile;
+
+/**
+ * 运行时依赖下载器：并行下载、断点续传、校验后原子落盘
+ * <p>
+ * 每个 jar 先下载到 {@code *.jar.part}，中断后下次启动通过 HTTP Range 从已有长度继续
+ * （响应的 Content-Range 起点与已有长度不符时从头下载）；
+ * 下载完成后与仓库发布的 .sha256（没有时退回 .sha1）比对，一致才原子重命名为最终文件，
+ * 并写入 {@code *.jar.verified} 标记。没有标记的旧 jar（旧版本启动器下载、可能不完整）会重新校验；
+ * 取不到校验文件（离线）时只要它能作为 zip 打开就先照常使用，下次联网启动时再校验。
+ * <p>
+ * 配置了共享缓存目录时，校验通过的文件按内容哈希复制一份到缓存（{@code <缓存>/<算法>/<前两位>/<哈希>}），
+ * 同一台机器上的其他版本命中缓存时不再下载。共享目录中的文件可能被其他用户替换，因此命中时
+ * 只使用属主为当前用户或 root、且其他人不可写的条目，先复制到目标目录内的私有临时文件，
+ * 校验这份副本后再原子重命名；从不硬链接缓存中的文件。
+ * 仓库地址也可以是 {@code file://} 开头的本地目录，此时直接复制文件。
+ */
+public class RuntimeDownloader {
+    private static final String PART_SUFFIX = ".part";
+    private static final String VERIFIED_SUFFIX = ".verified";
+    private static final String[] CHECKSUM_ALGORITHMS = {"sha256", "sha1"};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 校验失败时丢弃已下载部分重新下载的次数
+    private static final int MAX_ATTEMPTS = 2;
+
+    /**
+     * Maven 仓库中的一个构件
+     */
+    public record Artifact(String module, String version, String classifier) {
+        public String fileName() {
+            return module + "-" + version + (classifier == null || classifier.isEmpty() ? "" : "-" + classifier) + ".jar";
+        }
+
+        String repositoryPath() {
+            return module + "/" + version + "/" + fileName();
+        }
+    }
+
+    /**
+     * 汇总进度回调，可能在多个下载线程上调用
+     */
+    public interface ProgressListener {
+        /**
+         * @param downloaded 所有构件已下载的字节数
+         * @param total 所有构件的总字节数（部分构件大小未知时为估算值）
+         * @param status 当前状态描述
+         */
+        void onProgress(long downloaded, long total, String status);
+    }
+
+    private final OkHttpClient client;
+    private final String repositoryUrl;
+    private final Path localRepository; // file:// 仓库对应的目录，HTTP 仓库为 null
+    private final Path targetDir;
+    private final Path cacheDir;
+    private final int parallelism;
+
+    /**
+     * @param repositoryUrl 仓库地址，例如 https://repo1.maven.org/maven2/org/openjfx/ 或 file:///mnt/mirror/org/openjfx/
+     * @param cacheDir 共享的内容寻址缓存目录，为 null 时不使用缓存
+     * @param parallelism 同时下载的构件数
+     */
+    public RuntimeDownloader(OkHttpClient client, String repositoryUrl, Path targetDir, Path cacheDir, int parallelism) {
+        this.client = client;
+        this.repositoryUrl = repositoryUrl.endsWith("/") ? repositoryUrl : repositoryUrl + "/";
+        this.localRepository = this.repositoryUrl.startsWith("file:") ? Path.of(URI.create(this.repositoryUrl)) : null;
+        this.targetDir = targetDir;
+        this.cacheDir = cacheDir;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 确保所有构件都已下载并通过校验，任一失败时抛出异常
+     */
+    public void downloadAll(List<Artifact> artifacts, ProgressListener listener) throws IOException, InterruptedException {
+        Files.createDirectories(targetDir);
+        Progress progress = new Progress(artifacts.size(), listener);
+
+        // 每个构件一个虚拟线程，同时进行的下载数由信号量限制
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        try (TaskScope scope = TaskScope.open("runtime-download")) {
+            for (Artifact artifact : artifacts) {
+                scope.fork(artifact.fileName(), () -> {
+                    permits.acquire();
+                    try {
+                        ensure(artifact, progress);
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                });
+            }
+            scope.join();
+            try {
+                scope.throwIfFailed();
+            } catch (ExecutionException e) {
+                // 一个失败即整体失败：作用域已取消其余下载（包括进行中的请求），它们的 .part 保留供下次续传
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) throw io;
+                throw new IOException(cause.getMessage(), cause);
+            }
+        }
+    }
+
+    /**
+     * 所有构件都已下载并通过校验（存在 .verified 标记），启动时不需要访问网络
+     */
+    public static boolean isInstalled(Path targetDir, List<Artifact> artifacts) {
+        for (Artifact artifact : artifacts) {
+            if (!Files.isRegularFile(targetDir.resolve(artifact.fileName()))
+                    || !Files.isRegularFile(targetDir.resolve(artifact.fileName() + VERIFIED_SUFFIX))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 所有构件的 jar 都存在且能作为 zip 打开（可能尚未校验），没有可用镜像时可以先用它们启动
+     */
+    public static boolean isUsableOffline(Path targetDir, List<Artifact> artifacts) {
+        for (Artifact artifact : artifacts) {
+            if (!isReadableJar(targetDir.resolve(artifact.fileName()))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isReadableJar(Path file) {
+        if (!Files.isRegularFile(file)) return false;
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            return zip.size() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void ensure(Artifact artifact, Progress progress) throws IOException {
+        Path target = targetDir.resolve(artifact.fileName());
+        Path marker = targetDir.resolve(artifact.fileName() + VERIFIED_SUFFIX);
+        if (Files.isRegularFile(target) && Files.isRegularFile(marker)) {
+            long size = Files.size(target);
+            progress.sized(size);
+            progress.advance(size, null);
+            progress.done();
+            return;
+        }
+
+        Checksum expected;
+        try {
+            expected = fetchChecksum(artifact);
+        } catch (IOException e) {
+            // 旧版本启动器留下的 jar 没有标记：取不到校验文件时做本地检查后照常使用，不写标记，下次启动再校验
+            if (isReadableJar(target)) {
+                System.out.println("无法获取校验文件，暂时使用未校验的 " + artifact.fileName() + ": " + e.getMessage());
+                skip(target, progress);
+                return;
+            }
+            throw e;
+        }
+
+        // 旧版本启动器留下的 jar：校验通过则补写标记，否则重新下载
+        if (Files.isRegularFile(target)) {
+            if (expected.matches(target)) {
+                writeMarker(marker, expected);
+                skip(target, progress);
+                return;
+            }
+            System.out.println("校验失败，重新下载: " + artifact.fileName());
+            Files.delete(target);
+        }
+
+        Path cached = cachePath(expected);
+        if (cached != null && Files.exists(cached, LinkOption.NOFOLLOW_LINKS) && installFromCache(cached, target, expected)) {
+            System.out.println("命中共享缓存: " + artifact.fileName());
+            writeMarker(marker, expected);
+            skip(target, progress);
+            return;
+        }
+
+        Path part = targetDir.resolve(artifact.fileName() + PART_SUFFIX);
+        for (int attempt = 1; ; attempt++) {
+            long credited = download(artifact, part, progress, attempt == 1);
+            if (expected.matches(part)) break;
+            Files.deleteIfExists(part);
+            // 重新下载的字节会再计入一次，先扣掉这次计入的进度
+            progress.rewind(credited);
+            if (attempt >= MAX_ATTEMPTS) {
+                throw new IOException("校验失败: " + artifact.fileName() + " (" + expected.algorithm + ")");
+            }
+            System.out.println("校验失败，丢弃后重新下载: " + artifact.fileName());
+        }
+
+        if (cached != null) {
+            storeInCache(part, cached);
+        }
+        moveAtomically(part, target);
+        writeMarker(marker, expected);
+        progress.done();
+    }
+
+    private static void skip(Path target, Progress progress) throws IOException {
+        long size = Files.size(target);
+        progress.sized(size);
+        progress.advance(size, null);
+        progress.done();
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path cachePath(Checksum checksum) {
+        if (cacheDir == null) return null;
+        return cacheDir.resolve(checksum.algorithm).resolve(checksum.hash.substring(0, 2)).resolve(checksum.hash);
+    }
+
+    /**
+     * 从缓存安装：复制到目标目录内只有当前用户可访问的临时文件，校验副本后原子重命名为目标文件，
+     * 校验之后缓存条目再被替换也不会影响已安装的文件
+     * @return 是否安装成功；条目不可信或内容不符时返回 false，由调用方重新下载
+     */
+    private boolean installFromCache(Path cached, Path target, Checksum expected) throws IOException {
+        if (!isTrustedCacheEntry(cached)) {
+            System.out.println("共享缓存条目的属主或权限不符合要求，忽略: " + cached);
+            return false;
+        }
+        Path temp = Files.createTempFile(targetDir, target.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(cached, temp, StandardCopyOption.REPLACE_EXISTING);
+            if (!expected.matches(temp)) {
+                // 自己写入的条目已损坏，删除后重新下载；删除失败无关紧要
+                System.out.println("共享缓存条目已损坏，忽略: " + cached);
+                try {
+                    Files.deleteIfExists(cached);
+                } catch (IOException e) {
+                    // 留给下次
+                }
+                return false;
+            }
+            moveAtomically(temp, target);
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 缓存条目可信的条件：是普通文件而不是符号链接，属主是当前用户或 root，组和其他用户不可写，
+     * 并且从缓存根目录到条目所在目录中，所有人可写的目录都设置了粘滞位（其他用户无法替换条目）。
+     * 不支持 POSIX 属性的系统（Windows）上只检查不是链接，安全性由安装时对副本的校验保证。
+     */
+    private boolean isTrustedCacheEntry(Path file) {
+        try {
+            if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) return false;
+            PosixFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (UnsupportedOperationException e) {
+                return true;
+            }
+            String owner = attributes.owner().getName();
+            if (!owner.equals(System.getProperty("user.name")) && !owner.equals("root")) return false;
+            Set<PosixFilePermission> permissions = attributes.permissions();
+            if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                    || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                return false;
+            }
+            for (Path dir = file.getParent(); dir != null && dir.startsWith(cacheDir); dir = dir.getParent()) {
+                if (isWorldWritable(dir) && !isSticky(dir)) return false;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 把校验通过的文件复制一份到缓存：先写入缓存目录内的临时文件，再原子重命名，
+     * 其他进程不会看到写了一半的缓存文件；失败时只影响缓存，part 文件保持原位
+     */
+    private void storeInCache(Path part, Path cached) {
+        try {
+            Files.createDirectories(cached.getParent());
+            if (isWorldWritable(cacheDir)) {
+                makeSharedDirectory(cached.getParent().getParent());
+                makeSharedDirectory(cached.getParent());
+            }
+            if (Files.exists(cached, LinkOption.NOFOLLOW_LINKS)) {
+                // 其他进程已经放入了同样的内容
+                return;
+            }
+            Path temp = Files.createTempFile(cached.getParent(), cached.getFileName().toString(), ".tmp");
+            try {
+                Files.copy(part, temp, StandardCopyOption.REPLACE_EXISTING);
+                makeReadable(temp);
+                moveAtomically(temp, cached);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.err.println("写入共享缓存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 共享缓存目录设为 1777：所有用户可以写入，但只能删除或重命名自己的文件（与 /tmp 相同）。
+     * NIO 无法设置粘滞位，所以调用 chmod；只有目录的创建者能修改权限，失败时忽略
+     */
+    static void makeSharedDirectory(Path dir) {
+        if (!dir.getFileSystem().supportedFileAttributeViews().contains("posix")) return;
+        try {
+            Process chmod = new ProcessBuilder("chmod", "1777", dir.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            chmod.getInputStream().transferTo(OutputStream.nullOutputStream());
+            chmod.waitFor(5, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            // 没有 chmod 或非创建者
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isWorldWritable(Path dir) throws IOException {
+        try {
+            return Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS).contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 通过 unix 属性视图读取粘滞位（Linux 与 macOS 的 JDK 支持）；无法读取时按未设置处理
+     */
+    private static boolean isSticky(Path dir) {
+        try {
+            Object mode = Files.getAttribute(dir, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return mode instanceof Integer value && (value & 01000) != 0;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 缓存由多个用户共享，POSIX 系统上放宽为所有人可读、只有属主可写
+     */
+    private static void makeReadable(Path file) {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+        } catch (IOException | UnsupportedOperationException e) {
+            // Windows 上沿用目录的 ACL
+        }
+    }
+
+    /**
+     * 下载到 part 文件；已有部分内容时发送 Range 请求续传，服务端不支持或返回的范围对不上时从头开始
+     *
+     * @return 本次计入进度的字节数（包括续传前已有的部分）
+     */
+    private long download(Artifact artifact, Path part, Progress progress, boolean firstAttempt) throws IOException {
+        if (localRepository != null) {
+            return copyFromLocal(artifact, part, progress, firstAttempt);
+        }
+        long existing = Files.isRegularFile(part) ? Files.size(part) : 0;
+        Request.Builder builder = new Request.Builder()
+                .url(repositoryUrl + artifact.repositoryPath())
+                // 关闭透明 gzip，否则 Content-Length 与 Range 都针对压缩后的内容
+                .header("Accept-Encoding", "identity");
+        if (existing > 0) {
+            builder.header("Range", "bytes=" + existing + "-");
+        }
+
+        boolean restart;
+        Call call = client.newCall(builder.build());
+        // 作用域取消时中止请求，阻塞在读取响应体中的线程随即抛出 IOException
+        try (TaskScope.Registration ignored = TaskScope.onCancel(call::cancel);
+             Response response = call.execute()) {
+            if (response.code() == 416 && existing > 0) {
+                // 请求范围超出文件长度：part 文件与服务端文件一样长时已完整，否则（例如服务端文件已更换）重新下载
+                restart = contentRangeTotal(response.header("Content-Range")) != existing;
+                if (!restart) {
+                    if (firstAttempt) {
+                        progress.sized(existing);
+                        progress.advance(existing, null);
+                    }
+                    return existing;
+                }
+            } else {
+                if (!response.isSuccessful()) {
+                    throw new IOException("下载失败: " + artifact.fileName() + " HTTP " + response.code());
+                }
+                // 206 返回的起点必须正好是已有长度，否则追加后的文件是错位的
+                restart = response.code() == 206 && contentRangeStart(response.header("Content-Range")) != existing;
+                if (restart && existing == 0) {
+                    throw new IOException("下载失败: " + artifact.fileName() + " 服务端返回了未请求的范围 "
+                            + response.header("Content-Range"));
+                }
+                if (!restart) {
+                    return receive(artifact, part, progress, firstAttempt,
+                            response.code() == 206 ? existing : 0, response.body());
+                }
+            }
+        }
+        System.out.println("服务端返回的范围与已下载部分不符，从头下载: " + artifact.fileName());
+        Files.deleteIfExists(part);
+        return download(artifact, part, progress, firstAttempt);
+    }
+
+    private long receive(Artifact artifact, Path part, Progress progress, boolean firstAttempt,
+                         long existing, ResponseBody body) throws IOException {
+        boolean append = existing > 0;
+        long remaining = body.contentLength();
+        if (firstAttempt) {
+            progress.sized(remaining >= 0 ? existing + remaining : -1);
+            progress.advance(existing, null);
+        }
+        System.out.println((append ? "继续下载: " : "正在下载: ") + artifact.fileName() + " 至 " + targetDir);
+
+        long received = 0;
+        try (InputStream in = body.byteStream();
+             OutputStream out = Files.newOutputStream(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                received += read;
+                progress.advance(read, artifact.fileName());
+            }
+        }
+        return existing + received;
+    }
+
+    /**
+     * 解析 {@code Content-Range: bytes <起点>-<终点>/<总长>} 的起点，无法解析时返回 -1
+     */
+    static long contentRangeStart(String header) {
+        if (header == null || !header.startsWith("bytes ")) return -1;
+        int dash = header.indexOf('-');
+        if (dash < 0) return -1;
+        try {
+            return Long.parseLong(header.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 解析 {@code Content-Range} 中的总长（416 响应为 {@code bytes *}{@code /<总长>}），未知时返回 -1
+     */
+    static long contentRangeTotal(String header) {
+        if (header == null) return -1;
+        int slash = header.lastIndexOf('/');
+        if (slash < 0) return -1;
+        try {
+            return Long.parseLong(header.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private long copyFromLocal(Artifact artifact, Path part, Progress progress, boolean firstAttempt) throws IOException {
+        Path source = localRepository.resolve(artifact.repositoryPath());
+        if (firstAttempt) {
+            progress.sized(Files.size(source));
+        }
+        System.out.println("正在复制: " + source + " 至 " + targetDir);
+        long copied = 0;
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = Files.newOutputStream(part)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                copied += read;
+                progress.advance(read, artifact.fileName());
+            }
+        }
+        return copied;
+    }
+
+    private Checksum fetchChecksum(Artifact artifact) throws IOException {
+        if (localRepository != null) {
+            for (String algorithm : CHECKSUM_ALGORITHMS) {
+                Path file = localRepository.resolve(artifact.repositoryPath() + "." + algorithm);
+                if (Files.isRegularFile(file)) {
+                    Checksum checksum = Checksum.parse(algorithm, Files.readString(file));
+                    if (checksum != null) return checksum;
+                }
+            }
+            throw new IOException("镜像中没有 " + artifact.fileName() + " 的校验文件");
+        }
+        for (String algorithm : CHECKSUM_ALGORITHMS) {
+            Request request = new Request.Builder()
+                    .url(repositoryUrl + artifact.repositoryPath() + "." + algorithm)
+                    .build();
+            Call call = client.newCall(request);
+            try (TaskScope.Registration ignored = TaskScope.onCancel(call::cancel);
+                 Response response = call.execute()) {
+                if (!response.isSuccessful()) continue;
+                Checksum checksum = Checksum.parse(algorithm, response.body().string());
+                if (checksum != null) return checksum;
+            }
+        }
+        throw new IOException("仓库中没有 " + artifact.fileName() + " 的校验文件");
+    }
+
+    private static void writeMarker(Path marker, Checksum checksum) throws IOException {
+        Files.writeString(marker, checksum.algorithm + ":" + checksum.hash + "\n", StandardCharsets.UTF_8);
+    }
+
+    private record Checksum(String algorithm, String hash) {
+        /**
+         * 校验文件内容可能是 "&lt;hash&gt;" 或 "&lt;hash&gt;  &lt;文件名&gt;"；不是合法的十六进制哈希时返回 null
+         */
+        static Checksum parse(String algorithm, String text) {
+            String hash = text.trim().split("\\s+")[0].toLowerCase(Locale.ROOT);
+            int expectedLength = "sha256".equals(algorithm) ? 64 : 40;
+            if (hash.length() != expectedLength || !hash.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+                return null;
+            }
+            return new Checksum(algorithm, hash);
+        }
+
+        boolean matches(Path file) throws IOException {
+            return hash.equals(digest(file, algorithm));
+        }
+    }
+
+    static String digest(Path file, String algorithm) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("sha256".equals(algorithm) ? "SHA-256" : "SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 汇总所有下载线程的字节进度
+     */
+    private static final class Progress {
+        private final int artifactCount;
+        private final ProgressListener listener;
+        private final AtomicLong downloaded = new AtomicLong();
+        private final AtomicLong knownTotal = new AtomicLong();
+        private final AtomicInteger knownCount = new AtomicInteger();
+        private final AtomicInteger doneCount = new AtomicInteger();
+        // 限制回调频率，每 256KB 左右通知一次
+        private final AtomicLong lastReported = new AtomicLong();
+
+        Progress(int artifactCount, ProgressListener listener) {
+            this.artifactCount = artifactCount;
+            this.listener = listener;
+        }
+
+        /**
+         * 记录一个构件的总大小，未知时传 -1
+         */
+        void sized(long size) {
+            if (size >= 0) {
+                knownTotal.addAndGet(size);
+                knownCount.incrementAndGet();
+            }
+        }
+
+        void advance(long bytes, String current) {
+            long value = downloaded.addAndGet(bytes);
+            long last = lastReported.get();
+            if (current != null && value - last < 256 * 1024) return;
+            if (!lastReported.compareAndSet(last, value) && current != null) return;
+            report(value, current == null ? null : "正在下载: " + current);
+        }
+
+        /**
+         * 撤回已计入的字节（校验失败、丢弃后重新下载时），避免进度超过 100%
+         */
+        void rewind(long bytes) {
+            long value = downloaded.addAndGet(-bytes);
+            lastReported.set(value);
+            report(value, null);
+        }
+
+        void done() {
+            int done = doneCount.incrementAndGet();
+            report(downloaded.get(), "已完成 " + done + "/" + artifactCount + " 个组件");
+        }
+
+        private void report(long value, String status) {
+            if (listener == null) return;
+            long total = knownTotal.get();
+            int count = knownCount.get();
+            // 大小未知的构件按已知构件的平均大小估算
+            long estimated = count == 0 ? 0 : total + total / count * (artifactCount - count);
+            listener.onProgress(value, Math.max(estimated, value), status);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.lokins.sleepy.gui.launch;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 启动阶段计时
+ * <p>
+ * 启动器和程序本体可能由不同的类加载器加载（{@code launchApp} 中的 URLClassLoader），
+ * 也可能运行在启动器派生的子进程中，各自持有一份本类的静态状态。因此时间点不保存在静态字段里，
+ * 而是以 {@code sleepy.startup.<阶段>} 的形式写入系统属性，子进程通过 {@code -D} 参数继承。
+ * <p>
+ * 时间点为自 Unix 纪元起的微秒数，起点为最初那个 JVM 的启动时间。
+ */
+public final class StartupTimer {
+    public static final String JAVAFX_PROBE = "javafx-probe";
+    public static final String RUNTIME_RESOLVE = "runtime-resolve";
+    public static final String CLASSLOADER = "classloader";
+    // 使用 CDS 归档时代替 classloader：子进程 JVM 启动完成
+    public static final String CHILD_JVM = "child-jvm";
+    public static final String FXML_LOAD = "fxml-load";
+    public static final String TRAY_INIT = "tray-init";
+    public static final String FIRST_SHOW = "first-show";
+
+    static final String PREFIX = "sleepy.startup.";
+    private static final String ORIGIN = PREFIX + "origin";
+    private static final String ORDER = PREFIX + "order";
+    private static final String BASE = PREFIX + "base";
+    private static final String REPORTED = PREFIX + "reported";
+
+    private StartupTimer() {
+    }
+
+    /**
+     * 在 main 的第一行调用：记录 JVM 启动时间作为起点；子进程继承父进程的起点，并记录自身启动完成的时间
+     */
+    public static void begin() {
+        boolean inherited;
+        synchronized (System.getProperties()) {
+            inherited = System.getProperty(ORIGIN) != null;
+            if (!inherited) {
+                long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+                System.setProperty(ORIGIN, Long.toString(jvmStart * 1000));
+            }
+        }
+        if (inherited) mark(CHILD_JVM);
+    }
+
+    /**
+     * 记录一个阶段的结束时间；同名阶段只记录第一次
+     */
+    public static void mark(String phase) {
+        long now = nowMicros();
+        synchronized (System.getProperties()) {
+            if (System.getProperty(PREFIX + phase) != null) return;
+            System.setProperty(PREFIX + phase, Long.toString(now));
+            String order = System.getProperty(ORDER);
+            System.setProperty(ORDER, order == null ? phase : order + "," + phase);
+        }
+    }
+
+    /**
+     * 需要传给子进程的计时参数
+     */
+    static List<String> childJvmArguments() {
+        List<String> args = new ArrayList<>();
+        Properties props = System.getProperties();
+        synchronized (props) {
+            for (Map.Entry<Object, Object> e : props.entrySet()) {
+                String key = e.getKey().toString();
+                if (key.startsWith(PREFIX) && !key.equals(BASE) && !key.equals(REPORTED)) {
+                    args.add("-D" + key + "=" + e.getValue());
+                }
+            }
+        }
+        return args;
+    }
+
+    /**
+     * 生成一行摘要，例如 {@code javafx-probe=35ms(+35) ... tray-init=812ms(+120)}；每个进程只返回一次，之后返回 null
+     */
+    public static String report() {
+        synchronized (System.getProperties()) {
+            if (System.getProperty(REPORTED) != null) return null;
+            System.setProperty(REPORTED, "true");
+        }
+        long origin = Long.parseLong(System.getProperty(ORIGIN, Long.toString(nowMicros())));
+        StringBuilder sb = new StringBuilder();
+        long previous = origin;
+        for (String phase : phases()) {
+            long at = Long.parseLong(System.getProperty(PREFIX + phase));
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(phase).append('=').append((at - origin) / 1000)
+                    .append("ms(+").append((at - previous) / 1000).append(')');
+            previous = at;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 追加一行 CSV（时间, CDS 状态, 各阶段距起点的毫秒数），便于比较多次冷/热启动；
+     * 仅在 -Dsleepy.startup.trace=true 时写入
+     */
+    public static void appendTrace(Path csv) {
+        if (!Boolean.getBoolean(PREFIX + "trace")) return;
+        long origin = Long.parseLong(System.getProperty(ORIGIN, Long.toString(nowMicros())));
+        StringBuilder sb = new StringBuilder();
+        sb.append(origin / 1000).append(',').append(System.getProperty(PREFIX + "cds", "off"));
+        for (String phase : phases()) {
+            sb.append(',').append(phase).append('=')
+                    .append((Long.parseLong(System.getProperty(PREFIX + phase)) - origin) / 1000);
+        }
+        sb.append('\n');
+        try {
+            Files.createDirectories(csv.getParent());
+            Files.writeString(csv, sb, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("写入启动计时失败: " + e.getMessage());
+        }
+    }
+
+    private static List<String> phases() {
+        String order = System.getProperty(ORDER);
+        return order == null ? List.of() : List.of(order.split(","));
+    }
+
+    /**
+     * System.nanoTime 只在同一个 JVM 内可比，第一次调用时换算出它与墙上时间的差值并保存在系统属性里，
+     * 同一进程内的所有类加载器共用同一个换算基准
+     */
+    private static long nowMicros() {
+        long nanos = System.nanoTime();
+        String base = System.getProperty(BASE);
+        if (base == null) {
+            synchronized (System.getProperties()) {
+                base = System.getProperty(BASE);
+                if (base == null) {
+                    base = Long.toString(System.currentTimeMillis() * 1000 - nanos / 1000);
+                    System.setProperty(BASE, base);
+                }
+            }
+        }
+        return Long.parseLong(base) + nanos / 1000;
+    }
+}
@@ -0,0 +1,65 @@
+package com.lokins.sleepy.gui.logsearch;
+
+import java.util.Arrays;
+
+/**
+ * 递增 int 序列（倒排表），避免 List&lt;Integer&gt; 的装箱开销
+ */
+final class IntList {
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * 追加一个值，与末尾相同时忽略（同一条日志中重复出现的词只记一次）
+     */
+    void addDistinct(int value) {
+        if (size > 0 && values[size - 1] == value) return;
+        add(value);
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 与另一个递增序列求交集
+     */
+    IntList intersect(IntList other) {
+        IntList result = new IntList(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            int a = values[i];
+            int b = other.values[j];
+            if (a == b) {
+                result.add(a);
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,14 @@
+package com.lokins.sleepy.gui.logsearch;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * 检索命中的一条日志
+ * @param timestamp 日志时间
+ * @param level 级别
+ * @param loggerName Logger 名
+ * @param message 消息（包含随后的异常堆栈等续行）
+ * @param file 所在的日志文件，相对于日志目录
+ */
+public record LogHit(long timestamp, Level level, String loggerName, String message, String file) {
+}
@@ -0,0 +1,164 @@
+package com.lokins.sleepy.gui.logsearch;
+
+import com.lokins.sleepy.gui.utils.PathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 日志文件的全文索引：覆盖 logs/latest.log 以及 logs/history 下已滚动的文件
+ * <p>
+ * 每个日志文件对应一个 {@link LogSegment}，索引保存在 logs/index 下。
+ * 索引在第一次检索时才加载或建立，之后每次检索前只增量处理新写入的内容，
+ * 已删除的日志文件对应的索引会一并清理。
+ */
+public class LogIndex {
+    private static final Logger logger = LoggerFactory.getLogger(LogIndex.class);
+
+    private static final String ACTIVE_FILE = "latest.log";
+    private static final String HISTORY_DIR = "history";
+    private static final String INDEX_DIR = "index";
+
+    private static LogIndex instance;
+
+    private final Path logDir;
+    private final Path indexDir;
+    // 以下状态由 this 锁保护
+    private final Map<String, LogSegment> segments = new HashMap<>();
+    private boolean orphansCleaned;
+
+    public LogIndex(Path logDir) {
+        this.logDir = logDir;
+        this.indexDir = logDir.resolve(INDEX_DIR);
+    }
+
+    /**
+     * 与 logback.xml 中 LOG_DIR 对应的全局索引
+     */
+    public static synchronized LogIndex getInstance() {
+        if (instance == null) {
+            instance = new LogIndex(Paths.get(PathUtils.getDataPath("logs")));
+        }
+        return instance;
+    }
+
+    /**
+     * 检索日志，结果按时间从新到旧排列
+     */
+    public synchronized List<LogHit> search(LogQuery query) throws IOException {
+        refresh();
+
+        List<String> terms = new ArrayList<>();
+        Set<String> tokens = new LinkedHashSet<>();
+        String text = query.text() == null ? "" : query.text().trim();
+        if (!text.isEmpty()) {
+            for (String term : text.split("\\s+")) {
+                terms.add(term.toLowerCase(Locale.ROOT));
+                LogLineParser.tokenize(term, tokens::add);
+            }
+        }
+
+        List<LogSegment> ordered = new ArrayList<>(segments.values());
+        ordered.sort(Comparator.comparingLong(LogSegment::maxTimestamp).reversed());
+
+        List<LogHit> hits = new ArrayList<>();
+        List<String> tokenList = new ArrayList<>(tokens);
+        for (LogSegment segment : ordered) {
+            if (hits.size() >= query.limit()) break;
+            segment.search(query, tokenList, terms, hits);
+        }
+        return hits;
+    }
+
+    /**
+     * 同步日志目录：为新文件建立索引、增量更新已有文件、移除已删除文件的索引
+     */
+    private void refresh() throws IOException {
+        Set<String> present = new HashSet<>();
+        for (Path file : listLogFiles()) {
+            String name = logDir.relativize(file).toString().replace('\\', '/');
+            present.add(name);
+            LogSegment segment = segments.computeIfAbsent(name,
+                    n -> LogSegment.load(n, file, indexFileFor(n), ACTIVE_FILE.equals(n)));
+            try {
+                if (segment.update()) {
+                    segment.save();
+                }
+            } catch (IOException e) {
+                logger.warn("索引日志文件失败: {} ({})", name, e.getMessage());
+            }
+        }
+
+        segments.entrySet().removeIf(entry -> {
+            if (present.contains(entry.getKey())) return false;
+            deleteQuietly(entry.getValue().indexFile());
+            return true;
+        });
+
+        if (!orphansCleaned) {
+            cleanOrphans(present);
+            orphansCleaned = true;
+        }
+    }
+
+    private List<Path> listLogFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path active = logDir.resolve(ACTIVE_FILE);
+        if (Files.isRegularFile(active)) {
+            files.add(active);
+        }
+        Path history = logDir.resolve(HISTORY_DIR);
+        if (Files.isDirectory(history)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(history, "*.log")) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private Path indexFileFor(String name) {
+        return indexDir.resolve(name.replace('/', '_') + ".idx");
+    }
+
+    /**
+     * 删除上次运行之后日志已被 Logback 清理（maxHistory）而残留的索引文件
+     */
+    private void cleanOrphans(Set<String> present) throws IOException {
+        if (!Files.isDirectory(indexDir)) return;
+        Set<Path> expected = new HashSet<>();
+        for (String name : present) {
+            expected.add(indexFileFor(name));
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexDir)) {
+            for (Path file : stream) {
+                if (!expected.contains(file)) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("删除索引文件失败: {}", file);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.lokins.sleepy.gui.logsearch;
+
+import ch.qos.logback.classic.Level;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.function.Consumer;
+
+/**
+ * 解析 logback.xml 中 FILE Appender 的输出格式，并对文本分词
+ * <p>
+ * 行格式为 {@code yyyy-MM-dd HH:mm:ss.SSS [thread] LEVEL logger - message}，
+ * 不符合该格式的行（异常堆栈、多行消息）视为上一条日志的续行。
+ */
+final class LogLineParser {
+    static final byte LEVEL_UNKNOWN = -1;
+    private static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+
+    private static final int TIMESTAMP_LENGTH = 23;
+    // 单个词最长 64 个字符，更长的（如 Base64、哈希）不进入索引，由原文校验兜底
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * 解析出的日志头
+     */
+    record Header(long timestamp, byte level, String loggerName, String message) {
+    }
+
+    private LogLineParser() {
+    }
+
+    /**
+     * @return 日志头；该行是续行时返回 null
+     */
+    static Header parse(String line) {
+        if (line.length() < TIMESTAMP_LENGTH + 2 || line.charAt(TIMESTAMP_LENGTH) != ' '
+                || line.charAt(TIMESTAMP_LENGTH + 1) != '[') {
+            return null;
+        }
+        long timestamp = parseTimestamp(line);
+        if (timestamp < 0) return null;
+
+        int threadEnd = line.indexOf("] ", TIMESTAMP_LENGTH + 2);
+        if (threadEnd < 0) return null;
+
+        int levelStart = threadEnd + 2;
+        int levelEnd = line.indexOf(' ', levelStart);
+        if (levelEnd < 0) return null;
+        byte level = levelCode(line.substring(levelStart, levelEnd));
+
+        int loggerStart = levelEnd;
+        while (loggerStart < line.length() && line.charAt(loggerStart) == ' ') loggerStart++;
+        int separator = line.indexOf(" - ", loggerStart);
+        if (separator < 0) {
+            return new Header(timestamp, level, line.substring(loggerStart), "");
+        }
+        return new Header(timestamp, level, line.substring(loggerStart, separator), line.substring(separator + 3));
+    }
+
+    private static long parseTimestamp(String line) {
+        // yyyy-MM-dd HH:mm:ss.SSS
+        if (line.charAt(4) != '-' || line.charAt(7) != '-' || line.charAt(10) != ' ' || line.charAt(13) != ':'
+                || line.charAt(16) != ':' || line.charAt(19) != '.') {
+            return -1;
+        }
+        int year = digits(line, 0, 4);
+        int month = digits(line, 5, 2);
+        int day = digits(line, 8, 2);
+        int hour = digits(line, 11, 2);
+        int minute = digits(line, 14, 2);
+        int second = digits(line, 17, 2);
+        int millis = digits(line, 20, 3);
+        if ((year | month | day | hour | minute | second | millis) < 0) return -1;
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, millis * 1_000_000)
+                    .atZone(ZoneId.systemDefault())
+                    .toInstant()
+                    .toEpochMilli();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static int digits(String s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    static byte levelCode(String name) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].levelStr.equalsIgnoreCase(name)) return (byte) i;
+        }
+        return LEVEL_UNKNOWN;
+    }
+
+    static byte levelCodeOf(Level level) {
+        return level == null ? LEVEL_UNKNOWN : levelCode(level.levelStr);
+    }
+
+    static Level level(byte code) {
+        return code >= 0 && code < LEVELS.length ? LEVELS[code] : Level.INFO;
+    }
+
+    /**
+     * 分词：连续的字母数字（转为小写）组成一个词，汉字逐字成词，其余字符作为分隔
+     */
+    static void tokenize(CharSequence text, Consumer<String> sink) {
+        StringBuilder word = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int cp = Character.codePointAt(text, i);
+            i += Character.charCount(cp);
+            if (Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN) {
+                emit(word, sink);
+                sink.accept(new String(Character.toChars(cp)));
+            } else if (Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                emit(word, sink);
+            }
+        }
+        emit(word, sink);
+    }
+
+    private static void emit(StringBuilder word, Consumer<String> sink) {
+        if (word.length() > 0 && word.length() <= MAX_TOKEN_LENGTH) {
+            sink.accept(word.toString());
+        }
+        word.setLength(0);
+    }
+}
@@ -0,0 +1,18 @@
+package com.lokins.sleepy.gui.logsearch;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * 日志检索条件
+ * @param fromMillis 起始时间（含），不限制时为 {@link Long#MIN_VALUE}
+ * @param toMillis 结束时间（含），不限制时为 {@link Long#MAX_VALUE}
+ * @param minLevel 最低级别，为 null 时不限制
+ * @param text 关键字，按空白拆分为多个词，每个词都必须出现（不区分大小写）；为空时不限制
+ * @param limit 最多返回的条数，按时间从新到旧
+ */
+public record LogQuery(long fromMillis, long toMillis, Level minLevel, String text, int limit) {
+
+    public static LogQuery text(String text, int limit) {
+        return new LogQuery(Long.MIN_VALUE, Long.MAX_VALUE, null, text, limit);
+    }
+}
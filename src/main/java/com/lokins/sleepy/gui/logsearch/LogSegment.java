@@ -0,0 +1,372 @@
+package com.lokins.sleepy.gui.logsearch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 单个日志文件的索引
+ * <p>
+ * 记录每条日志的起始偏移、时间与级别，以及 词 -> 日志序号 的倒排表。
+ * 每次更新只读取并分词上次索引位置之后新增的完整行；文件变短或开头内容变化（已滚动为新文件）时重建。
+ * 已归档的文件通过内存映射读取；正在写入的 latest.log 使用普通的定位读取，
+ * 因为 Windows 上存在映射的文件无法被 Logback 滚动时重命名，而映射要等 GC 才会释放。
+ * 索引文件格式：
+ * {@code [magic][version][已索引长度][头部长度][头部 CRC32][条数][偏移/时间/级别...][词数][词, 条数, 序号差值...]}
+ */
+final class LogSegment {
+    private static final Logger logger = LoggerFactory.getLogger(LogSegment.class);
+
+    private static final int MAGIC = 0x534C4958; // "SLIX"
+    private static final int VERSION = 1;
+    // 用文件开头的若干字节识别同名的新文件
+    private static final int HEAD_BYTES = 256;
+    private static final long MAX_MAP_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_READ_BYTES = 4 * 1024 * 1024;
+    // 读取单条日志原文的上限，超长的异常堆栈只校验和显示前面部分
+    private static final int MAX_ENTRY_BYTES = 64 * 1024;
+
+    private final String name;
+    private final Path logFile;
+    private final Path indexFile;
+    private final boolean active;
+
+    private long indexedLength;
+    private int headLength;
+    private long headCrc;
+
+    private int entryCount;
+    private long[] offsets = new long[256];
+    private long[] timestamps = new long[256];
+    private byte[] levels = new byte[256];
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private final Map<String, IntList> postings = new HashMap<>();
+
+    private byte[] lineBuffer = new byte[1024];
+
+    private LogSegment(String name, Path logFile, Path indexFile, boolean active) {
+        this.name = name;
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+        this.active = active;
+    }
+
+    /**
+     * 读取已持久化的索引；索引不存在或损坏时返回空索引，由下一次 {@link #update()} 重建
+     */
+    static LogSegment load(String name, Path logFile, Path indexFile, boolean active) {
+        LogSegment segment = new LogSegment(name, logFile, indexFile, active);
+        if (!Files.exists(indexFile)) return segment;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            segment.read(in);
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("日志索引损坏，将重建: {} ({})", indexFile.getFileName(), e.toString());
+            return new LogSegment(name, logFile, indexFile, active);
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    Path indexFile() {
+        return indexFile;
+    }
+
+    /**
+     * 把文件中新增的完整行加入索引
+     * @return 索引是否有变化（需要持久化）
+     */
+    boolean update() throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean reset = false;
+            if (size < indexedLength || (indexedLength > 0 && crc(channel, headLength) != headCrc)) {
+                logger.info("日志文件已轮换，重建索引: {}", name);
+                clear();
+                reset = true;
+            }
+            if (size == indexedLength) return reset;
+
+            if (indexedLength == 0) {
+                headLength = (int) Math.min(HEAD_BYTES, size);
+                headCrc = crc(channel, headLength);
+            }
+
+            long position = indexedLength;
+            long maxChunk = active ? MAX_READ_BYTES : MAX_MAP_BYTES;
+            while (position < size) {
+                int chunk = (int) Math.min(maxChunk, size - position);
+                ByteBuffer buffer = active ? read(channel, position, chunk)
+                        : channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+                int consumed = indexLines(buffer, position);
+                if (consumed == 0 && chunk == maxChunk) {
+                    // 单行超过一个块，无法索引，整块跳过
+                    consumed = chunk;
+                }
+                position += consumed;
+                // 剩余部分是还没写完的行，留到下一次
+                if (consumed < chunk) break;
+            }
+            boolean changed = position != indexedLength;
+            indexedLength = position;
+            return changed || reset;
+        }
+    }
+
+    /**
+     * @return 已处理的字节数（到最后一个换行符为止）
+     */
+    private int indexLines(ByteBuffer buffer, long base) {
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) != '\n') continue;
+            int end = i > lineStart && buffer.get(i - 1) == '\r' ? i - 1 : i;
+            indexLine(decode(buffer, lineStart, end - lineStart), base + lineStart);
+            lineStart = i + 1;
+        }
+        return lineStart;
+    }
+
+    private String decode(ByteBuffer buffer, int start, int length) {
+        if (lineBuffer.length < length) {
+            lineBuffer = new byte[Math.max(length, lineBuffer.length * 2)];
+        }
+        buffer.get(start, lineBuffer, 0, length);
+        return new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void indexLine(String line, long offset) {
+        LogLineParser.Header header = LogLineParser.parse(line);
+        String indexed = line;
+        if (header != null) {
+            addEntry(offset, header.timestamp(), header.level());
+            // 时间戳的各个数字几乎出现在每一行，不放入倒排表，时间条件由时间数组处理
+            indexed = line.substring(24);
+        } else if (entryCount == 0) {
+            // 文件以续行开头（上一个文件的异常堆栈被切开），单独记一条
+            addEntry(offset, 0, LogLineParser.LEVEL_UNKNOWN);
+        }
+
+        int id = entryCount - 1;
+        LogLineParser.tokenize(indexed, token -> postings.computeIfAbsent(token, k -> new IntList()).addDistinct(id));
+    }
+
+    private void addEntry(long offset, long timestamp, byte level) {
+        if (entryCount == offsets.length) {
+            int capacity = entryCount * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+        }
+        offsets[entryCount] = offset;
+        timestamps[entryCount] = timestamp;
+        levels[entryCount] = level;
+        entryCount++;
+        if (timestamp > 0) {
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+    }
+
+    private void clear() {
+        indexedLength = 0;
+        headLength = 0;
+        headCrc = 0;
+        entryCount = 0;
+        minTimestamp = Long.MAX_VALUE;
+        maxTimestamp = Long.MIN_VALUE;
+        postings.clear();
+    }
+
+    /**
+     * 按条件检索，命中结果按时间从新到旧追加到 out，达到 query.limit 时停止
+     * @param tokens 关键字分出的词，全部出现的日志才是候选
+     * @param terms 关键字原词（小写），候选日志的原文必须包含全部原词
+     */
+    void search(LogQuery query, List<String> tokens, List<String> terms, List<LogHit> out) throws IOException {
+        if (entryCount == 0 || out.size() >= query.limit()) return;
+        if (maxTimestamp != Long.MIN_VALUE && (maxTimestamp < query.fromMillis() || minTimestamp > query.toMillis())) {
+            return;
+        }
+
+        IntList candidates = null;
+        for (String token : tokens) {
+            IntList list = postings.get(token);
+            if (list == null) return;
+            candidates = candidates == null ? list : candidates.intersect(list);
+            if (candidates.size() == 0) return;
+        }
+
+        byte minLevel = LogLineParser.levelCodeOf(query.minLevel());
+        int count = candidates == null ? entryCount : candidates.size();
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            for (int k = count - 1; k >= 0 && out.size() < query.limit(); k--) {
+                int id = candidates == null ? k : candidates.get(k);
+                long timestamp = timestamps[id];
+                if (timestamp < query.fromMillis() || timestamp > query.toMillis()) continue;
+                if (minLevel != LogLineParser.LEVEL_UNKNOWN && levels[id] < minLevel) continue;
+
+                String text = readEntry(channel, id);
+                if (!containsAll(text, terms)) continue;
+                out.add(toHit(text, id));
+            }
+        } catch (NoSuchFileException e) {
+            // 检索期间文件被滚动删除，忽略
+        }
+    }
+
+    private String readEntry(FileChannel channel, int id) throws IOException {
+        long start = offsets[id];
+        long end = id + 1 < entryCount ? offsets[id + 1] : indexedLength;
+        ByteBuffer buffer = read(channel, start, (int) Math.min(end - start, MAX_ENTRY_BYTES));
+        return new String(buffer.array(), 0, buffer.limit(), StandardCharsets.UTF_8).stripTrailing();
+    }
+
+    private static boolean containsAll(String text, List<String> terms) {
+        if (terms.isEmpty()) return true;
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String term : terms) {
+            if (!lower.contains(term)) return false;
+        }
+        return true;
+    }
+
+    private LogHit toHit(String text, int id) {
+        int lineEnd = text.indexOf('\n');
+        String first = lineEnd < 0 ? text : text.substring(0, lineEnd).stripTrailing();
+        LogLineParser.Header header = LogLineParser.parse(first);
+        if (header == null) {
+            return new LogHit(timestamps[id], LogLineParser.level(levels[id]), "", text, name);
+        }
+        String message = lineEnd < 0 ? header.message() : header.message() + text.substring(lineEnd);
+        return new LogHit(header.timestamp(), LogLineParser.level(header.level()), header.loggerName(), message, name);
+    }
+
+    private static long crc(FileChannel channel, int length) throws IOException {
+        ByteBuffer buffer = read(channel, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit());
+        return crc.getValue();
+    }
+
+    /**
+     * 从指定位置读取最多 length 字节，返回的缓冲区 limit 为实际读到的长度
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免写到一半时退出留下损坏的索引
+     */
+    void save() throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            write(out);
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(indexedLength);
+        out.writeInt(headLength);
+        out.writeLong(headCrc);
+        out.writeInt(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            out.writeLong(offsets[i]);
+            out.writeLong(timestamps[i]);
+            out.writeByte(levels[i]);
+        }
+        out.writeInt(postings.size());
+        for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+            IntList list = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeInt(list.size());
+            int previous = 0;
+            for (int i = 0; i < list.size(); i++) {
+                writeVarInt(out, list.get(i) - previous);
+                previous = list.get(i);
+            }
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("unsupported index format");
+        }
+        indexedLength = in.readLong();
+        headLength = in.readInt();
+        headCrc = in.readLong();
+        int count = in.readInt();
+        offsets = new long[Math.max(256, count)];
+        timestamps = new long[offsets.length];
+        levels = new byte[offsets.length];
+        for (int i = 0; i < count; i++) {
+            addEntry(in.readLong(), in.readLong(), in.readByte());
+        }
+        int tokenCount = in.readInt();
+        for (int t = 0; t < tokenCount; t++) {
+            String token = in.readUTF();
+            int size = in.readInt();
+            IntList list = new IntList(size);
+            int value = 0;
+            for (int i = 0; i < size; i++) {
+                value += readVarInt(in);
+                list.add(value);
+            }
+            postings.put(token, list);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("malformed varint");
+    }
+}
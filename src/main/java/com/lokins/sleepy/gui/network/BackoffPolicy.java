@@ -0,0 +1,29 @@
+package com.lokins.sleepy.gui.network;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 指数退避 + 随机抖动
+ * <p>
+ * 第 n 次重试的上限为 {@code min(max, base * 2^n)}，实际延迟在上限的 [50%, 100%] 之间随机，
+ * 避免服务端恢复时所有客户端在同一时刻一起重试。
+ */
+public class BackoffPolicy {
+    private final long baseMillis;
+    private final long maxMillis;
+
+    public BackoffPolicy(long baseMillis, long maxMillis) {
+        this.baseMillis = Math.max(1, baseMillis);
+        this.maxMillis = Math.max(this.baseMillis, maxMillis);
+    }
+
+    /**
+     * @param attempt 已连续失败的次数，从 0 开始
+     */
+    public long delayMillis(int attempt) {
+        int shift = Math.min(Math.max(attempt, 0), 30);
+        long ceiling = Math.min(maxMillis, baseMillis << shift);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+}
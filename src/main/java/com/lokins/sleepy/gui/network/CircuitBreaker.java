@@ -0,0 +1,164 @@
+package com.lokins.sleepy.gui.network;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 服务端调用熔断器
+ * <p>
+ * CLOSED: 正常放行，连续失败达到阈值后进入 OPEN<br>
+ * OPEN: 直接拒绝请求，等待时间按指数退避增长（或服从服务端的 Retry-After）<br>
+ * HALF_OPEN: 等待结束后只放行一个探测请求，成功则恢复 CLOSED，失败则重新 OPEN
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final BackoffPolicy openBackoff;
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    // 以下状态由 this 锁保护
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int consecutiveOpens;
+    private long openUntil;
+    private boolean probeInFlight;
+
+    // 各状态下放行 / 拒绝的调用次数，以及进入各状态的次数
+    private final Map<State, AtomicLong> allowedCounts = new EnumMap<>(State.class);
+    private final Map<State, AtomicLong> rejectedCounts = new EnumMap<>(State.class);
+    private final Map<State, AtomicLong> transitionCounts = new EnumMap<>(State.class);
+
+    public CircuitBreaker(String name, int failureThreshold, BackoffPolicy openBackoff) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openBackoff = openBackoff;
+        for (State s : State.values()) {
+            allowedCounts.put(s, new AtomicLong());
+            rejectedCounts.put(s, new AtomicLong());
+            transitionCounts.put(s, new AtomicLong());
+        }
+    }
+
+    /**
+     * 请求发出前调用，返回 false 表示当前处于熔断中，调用方应直接放弃本次请求
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            transitionTo(State.HALF_OPEN);
+        }
+
+        boolean allowed = switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> !probeInFlight;
+        };
+        if (allowed && state == State.HALF_OPEN) {
+            probeInFlight = true;
+        }
+        (allowed ? allowedCounts : rejectedCounts).get(state).incrementAndGet();
+        return allowed;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        consecutiveOpens = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            open(openBackoff.delayMillis(consecutiveOpens++));
+        }
+    }
+
+    /**
+     * 已放行的请求最终没有发出时调用，归还半开状态下的探测名额
+     */
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    /**
+     * 服务端明确要求稍后再试（429 / 503 + Retry-After）时立即熔断至指定时间
+     */
+    public synchronized void openFor(long millis) {
+        probeInFlight = false;
+        open(Math.max(millis, openUntil - System.currentTimeMillis()));
+    }
+
+    /**
+     * 距离允许下一次探测还有多久，非 OPEN 状态返回 0
+     */
+    public synchronized long remainingOpenMillis() {
+        return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public long getAllowedCount(State s) {
+        return allowedCounts.get(s).get();
+    }
+
+    public long getRejectedCount(State s) {
+        return rejectedCounts.get(s).get();
+    }
+
+    public long getTransitionCount(State s) {
+        return transitionCounts.get(s).get();
+    }
+
+    public void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<State> listener) {
+        listeners.remove(listener);
+    }
+
+    private void open(long millis) {
+        openUntil = System.currentTimeMillis() + millis;
+        if (state != State.OPEN) {
+            transitionTo(State.OPEN);
+        }
+        logger.warn("[{}] Circuit open for {} ms", name, millis);
+    }
+
+    private void transitionTo(State next) {
+        State previous = state;
+        state = next;
+        transitionCounts.get(next).incrementAndGet();
+        logger.info("[{}] Circuit {} -> {} | {}", name, previous, next, describe());
+        for (Consumer<State> listener : listeners) {
+            listener.accept(next);
+        }
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (State s : State.values()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(s).append("(entered=").append(transitionCounts.get(s).get())
+                    .append(" allowed=").append(allowedCounts.get(s).get())
+                    .append(" rejected=").append(rejectedCounts.get(s).get()).append(')');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package com.lokins.sleepy.gui.network;
+
+import com.lokins.sleepy.gui.utils.ConfigManager;
+import com.lokins.sleepy.gui.utils.Tasks;
+import okhttp3.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内共享的 HTTP 传输层
+ * <p>
+ * 所有 SleepyClient 实例以及启动器的运行时下载都复用同一个 OkHttpClient，
+ * 从而共享连接池、Dispatcher 和 TLS 会话。参数读取自 config.ini 的 [network] 段，
+ * 读取失败时使用默认值。
+ */
+public final class HttpTransport {
+    private static final Logger logger = LoggerFactory.getLogger(HttpTransport.class);
+
+    private static volatile OkHttpClient shared;
+
+    // 建立的 TCP 连接数与 TLS 握手次数，用于观察连接复用效果
+    private static final AtomicLong connectCount = new AtomicLong();
+    private static final AtomicLong tlsHandshakeCount = new AtomicLong();
+
+    private HttpTransport() {
+    }
+
+    public static OkHttpClient shared() {
+        OkHttpClient client = shared;
+        if (client == null) {
+            synchronized (HttpTransport.class) {
+                client = shared;
+                if (client == null) {
+                    client = build();
+                    shared = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * 大文件下载使用：共享连接池与 Dispatcher，但放宽读超时
+     */
+    public static OkHttpClient forDownloads() {
+        return shared().newBuilder()
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public static long getConnectCount() {
+        return connectCount.get();
+    }
+
+    public static long getTlsHandshakeCount() {
+        return tlsHandshakeCount.get();
+    }
+
+    private static OkHttpClient build() {
+        int maxIdle = readInt("pool_max_idle", 5);
+        int keepAliveSeconds = readInt("keep_alive_seconds", 300);
+        int connectTimeout = readInt("connect_timeout_ms", 5000);
+        int readTimeout = readInt("read_timeout_ms", 10000);
+        int writeTimeout = readInt("write_timeout_ms", 10000);
+
+        // 异步请求（上报）在虚拟线程中执行。OkHttp 4 在 synchronized 块内读写 HTTP/2 帧，
+        // 这期间虚拟线程会固定在承载线程上；上报已按设备合并，并发很低，影响可以忽略。
+        // 连接池清理等 OkHttp 内部任务仍使用它自己的平台线程，4.x 没有提供替换的入口。
+        Dispatcher dispatcher = new Dispatcher(Tasks.newPerTaskExecutor("Sleepy-Http"));
+        dispatcher.setMaxRequests(readInt("max_requests", 16));
+        dispatcher.setMaxRequestsPerHost(readInt("max_requests_per_host", 4));
+
+        logger.info("HTTP transport: pool={}x{}s, timeouts(ms) connect={} read={} write={}",
+                maxIdle, keepAliveSeconds, connectTimeout, readTimeout, writeTimeout);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdle, keepAliveSeconds, TimeUnit.SECONDS))
+                .dispatcher(dispatcher)
+                // 服务端通过 ALPN 支持 HTTP/2 时自动升级，否则回退 HTTP/1.1
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeout, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .eventListener(new EventListener() {
+                    @Override
+                    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+                        connectCount.incrementAndGet();
+                    }
+
+                    @Override
+                    public void secureConnectStart(Call call) {
+                        tlsHandshakeCount.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 读取 [network] 段的整数配置，缺失或非法时返回默认值
+     */
+    static int readInt(String key, int defaultValue) {
+        try {
+            return ConfigManager.getInstance().snapshot().getInt("network", key, defaultValue);
+        } catch (Exception e) {
+            logger.warn("Invalid network config [{}], using default {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+}
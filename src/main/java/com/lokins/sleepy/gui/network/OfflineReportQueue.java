@@ -0,0 +1,291 @@
+package com.lokins.sleepy.gui.network;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 离线上报队列：服务器不可达时失败的上报追加写入磁盘，恢复连接后按顺序重放
+ * <p>
+ * 单文件顺序追加，每条记录格式为 {@code [int 长度][long 创建时间][int CRC32][JSON]}。
+ * 追加时不立即 fsync，由调用方周期性调用 {@link #sync()} 批量落盘；
+ * 进程崩溃导致的半条记录会在下次打开时通过长度/CRC 校验截掉。
+ * <p>
+ * 重放时先用 {@link #peek()} 读出记录，发送成功后再调用 {@link #acknowledge} 删除，
+ * 发送前崩溃或发送失败时记录仍在磁盘上。删除与压缩都写入临时文件后原子替换，不会在中途丢失整个队列。
+ */
+public class OfflineReportQueue implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(OfflineReportQueue.class);
+
+    private static final int HEADER_SIZE = 4 + 8 + 4;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path file;
+    private final Path tempFile;
+
+    // 以下状态由 this 锁保护
+    private FileChannel channel;
+    private long size;
+    private int count;
+    private boolean dirty;
+    // 关闭后迟到的 append / acknowledge（例如停止时仍在途的请求）直接忽略，不会重新打开文件
+    private boolean closed;
+    // 每个设备在磁盘上最新一条记录的创建时间
+    private final Map<String, Long> latestCreatedAt = new HashMap<>();
+
+    public OfflineReportQueue(Path dir, long maxBytes, long maxAgeMillis) throws IOException {
+        Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.file = dir.resolve("reports.q");
+        this.tempFile = dir.resolve("reports.q.tmp");
+        // 上次重写到一半留下的临时文件，原文件仍然完整
+        Files.deleteIfExists(tempFile);
+        this.channel = open(file);
+
+        // 校验已有记录，截掉崩溃时写了一半的尾部
+        List<ReportPayload> existing = readAll();
+        if (channel.size() != size) {
+            logger.warn("离线队列尾部损坏，已截断: {} -> {} bytes", channel.size(), size);
+            channel.truncate(size);
+            channel.force(true);
+        }
+        if (!existing.isEmpty()) {
+            logger.info("离线队列中有 {} 条待重放的上报", existing.size());
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * 追加一条上报（不立即 fsync）；磁盘上已有同一设备相同或更新的记录时（例如重放失败的记录）不重复写入
+     */
+    public synchronized void append(ReportPayload payload) {
+        if (closed) return;
+        Long latest = latestCreatedAt.get(payload.getId());
+        if (latest != null && latest >= payload.getCreatedAt()) return;
+        try {
+            if (size >= maxBytes) {
+                compact();
+            }
+            writeRecord(payload);
+            dirty = true;
+        } catch (IOException e) {
+            logger.error("写入离线队列失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 批量落盘：只有自上次 sync 以来有新写入时才真正 fsync
+     */
+    public synchronized void sync() {
+        if (closed || !dirty) return;
+        try {
+            channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            logger.error("离线队列落盘失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 读出全部待重放的上报，记录仍保留在磁盘上，发送成功后需调用 {@link #acknowledge}
+     * <p>
+     * 同一设备只保留最新的一条（更早的已被覆盖），超过最大保留时间的直接丢弃，
+     * 返回顺序为各设备最后一次上报的先后顺序。
+     */
+    public synchronized List<ReportPayload> peek() {
+        if (closed || count == 0) return List.of();
+        try {
+            List<ReportPayload> replay = collapse(readAll());
+            if (replay.isEmpty()) {
+                // 全部过期：直接清空，避免之后每次都重新读取
+                rewrite(replay);
+            }
+            return replay;
+        } catch (IOException e) {
+            logger.error("读取离线队列失败: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 确认 sent 已发送成功：删除同一设备创建时间不晚于它的记录（已被它覆盖）
+     */
+    public synchronized void acknowledge(ReportPayload sent) {
+        if (closed) return;
+        Long latest = latestCreatedAt.get(sent.getId());
+        if (latest == null) return;
+        try {
+            List<ReportPayload> kept = new ArrayList<>();
+            for (ReportPayload payload : readAll()) {
+                if (!payload.getId().equals(sent.getId()) || payload.getCreatedAt() > sent.getCreatedAt()) {
+                    kept.add(payload);
+                }
+            }
+            rewrite(collapse(kept));
+        } catch (IOException e) {
+            logger.error("更新离线队列失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 超过大小上限时重写：合并被覆盖的记录并淘汰过期记录
+     */
+    private void compact() throws IOException {
+        rewrite(collapse(readAll()));
+        logger.info("离线队列已压缩，剩余 {} 条", count);
+    }
+
+    /**
+     * 把 records 写入临时文件并落盘，再原子替换队列文件；替换前崩溃时原文件不受影响
+     */
+    private void rewrite(List<ReportPayload> records) throws IOException {
+        try (FileChannel temp = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for (ReportPayload payload : records) {
+                ByteBuffer record = encode(payload);
+                while (record != null && record.hasRemaining()) {
+                    position += temp.write(record, position);
+                }
+            }
+            temp.force(true);
+        }
+        // Windows 上不能替换仍被打开的文件
+        channel.close();
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } finally {
+            // 替换失败时队列文件仍是原来的内容
+            Files.deleteIfExists(tempFile);
+            channel = open(file);
+            readAll();
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void writeRecord(ReportPayload payload) throws IOException {
+        ByteBuffer buffer = encode(payload);
+        if (buffer == null) return;
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer, size);
+        }
+        count++;
+        latestCreatedAt.merge(payload.getId(), payload.getCreatedAt(), Math::max);
+    }
+
+    /**
+     * 编码为一条完整记录；内容过大时返回 null
+     */
+    private ByteBuffer encode(ReportPayload payload) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(payload);
+        if (json.length > MAX_RECORD_SIZE) {
+            logger.warn("上报内容过大，未写入离线队列: {} bytes", json.length);
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(json);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + json.length);
+        buffer.putInt(json.length).putLong(payload.getCreatedAt()).putInt((int) crc.getValue()).put(json);
+        buffer.flip();
+        return buffer;
+    }
+
+    private List<ReportPayload> collapse(List<ReportPayload> records) {
+        long expireBefore = System.currentTimeMillis() - maxAgeMillis;
+        Map<String, ReportPayload> latest = new LinkedHashMap<>();
+        for (ReportPayload payload : records) {
+            if (payload.getCreatedAt() < expireBefore) continue;
+            latest.remove(payload.getId());
+            latest.put(payload.getId(), payload);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * 顺序读取所有完整记录，并把 size/count 更新为最后一条有效记录的位置；
+     * 校验通过但无法解析的记录跳过，下次重写时删除
+     */
+    private List<ReportPayload> readAll() throws IOException {
+        List<ReportPayload> records = new ArrayList<>();
+        latestCreatedAt.clear();
+        long fileSize = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= fileSize) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            long createdAt = header.getLong();
+            int checksum = header.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + HEADER_SIZE + length > fileSize) break;
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            channel.read(body, position + HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            if ((int) crc.getValue() != checksum) break;
+
+            position += HEADER_SIZE + length;
+            ReportPayload payload;
+            try {
+                payload = objectMapper.readValue(body.array(), ReportPayload.class);
+            } catch (IOException e) {
+                logger.warn("离线队列中有无法解析的记录，已跳过: {}", e.getMessage());
+                continue;
+            }
+            if (payload.getId() == null) {
+                logger.warn("离线队列中有缺少设备 ID 的记录，已跳过");
+                continue;
+            }
+            payload.setCreatedAt(createdAt);
+            records.add(payload);
+            latestCreatedAt.merge(payload.getId(), createdAt, Math::max);
+        }
+
+        size = position;
+        count = records.size();
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        sync();
+        closed = true;
+        channel.close();
+    }
+}
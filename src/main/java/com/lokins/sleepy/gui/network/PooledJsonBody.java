@@ -0,0 +1,87 @@
+package com.lokins.sleepy.gui.network;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 直接由池化字节缓冲区支撑的 JSON 请求体
+ * <p>
+ * 序列化结果写入可复用的缓冲区，发送时整块写入 sink，中间不再生成临时的 String 或 byte[]。
+ * 请求结束（成功或失败）后必须调用 {@link #release()} 归还缓冲区；在此之前 OkHttp 可能因重试多次调用 writeTo。
+ */
+final class PooledJsonBody extends RequestBody {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private static final int POOL_SIZE = 4;
+    // 偶尔出现的超大 payload 不放回池中，避免长期占用内存
+    private static final int MAX_POOLED_CAPACITY = 16 * 1024;
+    private static final ArrayBlockingQueue<Buffer> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final Buffer buffer;
+
+    private PooledJsonBody(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    static PooledJsonBody write(ObjectWriter writer, Object value) throws IOException {
+        Buffer buffer = POOL.poll();
+        if (buffer == null) {
+            buffer = new Buffer();
+        }
+        try {
+            writer.writeValue(buffer, value);
+        } catch (IOException | RuntimeException e) {
+            recycle(buffer);
+            throw e;
+        }
+        return new PooledJsonBody(buffer);
+    }
+
+    void release() {
+        recycle(buffer);
+    }
+
+    private static void recycle(Buffer buffer) {
+        if (buffer.capacity() > MAX_POOLED_CAPACITY) return;
+        buffer.reset();
+        POOL.offer(buffer);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.size();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        sink.write(buffer.array(), 0, buffer.size());
+    }
+
+    /**
+     * 暴露内部数组的 ByteArrayOutputStream，避免 toByteArray() 的复制
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(512);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.lokins.sleepy.gui.network;
+
+/**
+ * 单次上报请求的结果回调（在 OkHttp 回调线程中执行）
+ */
+public interface ReportCallback {
+
+    void onSuccess(ReportPayload payload);
+
+    /**
+     * @param retryable 是否值得重试：网络异常、5xx 等为 true，4xx 等服务端明确拒绝的为 false
+     */
+    void onFailure(ReportPayload payload, boolean retryable);
+}
@@ -1,5 +1,6 @@
 package com.lokins.sleepy.gui.network;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.HashMap;
 import java.util.Map;
@@ -19,7 +20,14 @@ public class ReportPayload {
     private String status; // 对应你的应用名 (App Name)
 
     @JsonProperty("fields")
-    private Map<String, Object> fields = new HashMap<>(); // 其他扩展参数
+    private Map<String, Object> fields = Map.of(); // 其他扩展参数，没有时共享同一个空 Map
+
+    @JsonIgnore
+    private long createdAt = System.currentTimeMillis(); // 本地创建时间，仅用于离线队列过期判断，不上报
+
+    // 供 Jackson 从离线队列反序列化使用
+    private ReportPayload() {
+    }
 
     public ReportPayload(String id, String showName, String appName) {
         this.id = id;
@@ -27,5 +35,38 @@ public class ReportPayload {
         this.status = appName;
     }
 
+    public ReportPayload(String id, String showName, String appName, Map<String, Object> fields) {
+        this(id, showName, appName);
+        this.fields = fields.isEmpty() ? Map.of() : new HashMap<>(fields);
+    }
+
     // Getters and Setters...
-}
\ No newline at end of file
+
+    public String getId() {
+        return id;
+    }
+
+    public String getShowName() {
+        return showName;
+    }
+
+    public boolean isUsing() {
+        return using;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+}
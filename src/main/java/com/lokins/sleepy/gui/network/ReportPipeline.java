@@ -0,0 +1,318 @@
+package com.lokins.sleepy.gui.network;
+
+import com.lokins.sleepy.gui.utils.Tasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上报管道：位于 MonitorService 与 SleepyClient 之间
+ * <p>
+ * 1. 每个设备只保留最新一条待发送的上报，快速切换窗口时旧的上报直接被覆盖（合并）<br>
+ * 2. 防抖窗口内没有新的上报时才真正发送，持续切换时最多等待 {@code MAX_WAIT_FACTOR} 个窗口<br>
+ * 3. 同一时刻最多只有一个请求在途<br>
+ * 4. 因网络原因失败的上报写入 {@link OfflineReportQueue}，下次发送成功或退避时间到期后按顺序重放，
+ * 退避时间按 {@link BackoffPolicy} 指数增长，且不早于熔断器允许的下一次探测时间；
+ * 重放的记录在发送成功后才从离线队列中删除
+ */
+public class ReportPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ReportPipeline.class);
+
+    // 最多同时缓存多少个设备的待发送上报，超出时丢弃最旧的
+    private static final int MAX_PENDING_DEVICES = 16;
+    private static final int MAX_WAIT_FACTOR = 4;
+    private static final long MAINTENANCE_INTERVAL_MS = 1000;
+
+    private final SleepyClient client;
+    private final long debounceMillis;
+    private final OfflineReportQueue offlineQueue; // 可为 null，表示不启用离线队列
+    private final BackoffPolicy retryBackoff;
+    private final ScheduledExecutorService executor;
+
+    // 以下状态均由 this 锁保护
+    private final Map<String, ReportPayload> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> flushTask;
+    private long firstPendingAt;
+    // 在途的上报，没有时为 null
+    private ReportPayload inFlight;
+    // 停止时仍在途、已写入离线队列的上报，它之后的失败回调不计为丢弃
+    private ReportPayload persistedOnStop;
+    private boolean running = true;
+    private int failedAttempts;
+    private long nextRetryAt;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong replayedCount = new AtomicLong();
+
+    public ReportPipeline(SleepyClient client, long debounceMillis,
+                          OfflineReportQueue offlineQueue, BackoffPolicy retryBackoff) {
+        this.client = client;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.offlineQueue = offlineQueue;
+        this.retryBackoff = retryBackoff;
+        this.executor = Tasks.newScheduler("Sleepy-Report");
+
+        if (offlineQueue != null) {
+            executor.scheduleWithFixedDelay(this::maintainOfflineQueue,
+                    MAINTENANCE_INTERVAL_MS, MAINTENANCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void submit(String appName) {
+        submit(client.createPayload(appName));
+    }
+
+    public void submit(String appName, Map<String, Object> fields) {
+        submit(client.createPayload(appName, fields));
+    }
+
+    public synchronized void submit(ReportPayload payload) {
+        submittedCount.incrementAndGet();
+        if (!running) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        if (pending.remove(payload.getId()) != null) {
+            coalescedCount.incrementAndGet();
+        } else if (pending.size() >= MAX_PENDING_DEVICES) {
+            Iterator<String> it = pending.keySet().iterator();
+            it.next();
+            it.remove();
+            droppedCount.incrementAndGet();
+        }
+
+        long now = System.currentTimeMillis();
+        if (pending.isEmpty()) {
+            firstPendingAt = now;
+        }
+        pending.put(payload.getId(), payload);
+
+        // 防抖：每次有新上报都把发送时间往后推，但不超过最大等待时间
+        long deadline = firstPendingAt + debounceMillis * MAX_WAIT_FACTOR;
+        long delay = Math.max(0, Math.min(debounceMillis, deadline - now));
+        scheduleFlush(delay);
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flushTask = executor.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        ReportPayload payload;
+        synchronized (this) {
+            flushTask = null;
+            if (!running || inFlight != null || pending.isEmpty()) return;
+
+            Iterator<ReportPayload> it = pending.values().iterator();
+            payload = it.next();
+            it.remove();
+            inFlight = payload;
+            firstPendingAt = System.currentTimeMillis();
+        }
+
+        client.send(payload, new ReportCallback() {
+            @Override
+            public void onSuccess(ReportPayload payload) {
+                sentCount.incrementAndGet();
+                resetBackoff();
+                if (offlineQueue != null) {
+                    // 队列中同一设备更早的记录（包括这条本身）已被覆盖
+                    offlineQueue.acknowledge(payload);
+                }
+                // 连接已恢复，把离线期间积压的上报并入待发送队列
+                replayOffline();
+                complete();
+            }
+
+            @Override
+            public void onFailure(ReportPayload payload, boolean retryable) {
+                if (retryable) {
+                    scheduleRetry();
+                    enqueueOffline(payload);
+                } else {
+                    droppedCount.incrementAndGet();
+                }
+                complete();
+            }
+        });
+    }
+
+    private synchronized void enqueueOffline(ReportPayload payload) {
+        if (pending.containsKey(payload.getId())) {
+            // 已有更新的上报在等待，失败的这条已经过时
+            coalescedCount.incrementAndGet();
+        } else if (running && offlineQueue != null) {
+            offlineQueue.append(payload);
+            queuedCount.incrementAndGet();
+        } else if (payload != persistedOnStop) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    private void replayOffline() {
+        if (offlineQueue == null || offlineQueue.isEmpty()) return;
+
+        int replayed;
+        synchronized (this) {
+            if (!running) return;
+            replayed = enqueueReplay();
+        }
+        if (replayed > 0) {
+            logger.info("Replaying {} offline report(s)", replayed);
+        }
+    }
+
+    /**
+     * 把离线队列中的记录并入待发送队列；已有待发送上报的设备跳过（可能正是上次并入的同一条记录，
+     * 也可能是更新的上报，发送成功后会一并确认掉队列中的旧记录）
+     */
+    private int enqueueReplay() {
+        int replayed = 0;
+        for (ReportPayload payload : offlineQueue.peek()) {
+            if (pending.putIfAbsent(payload.getId(), payload) == null) {
+                replayedCount.incrementAndGet();
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    private synchronized void resetBackoff() {
+        failedAttempts = 0;
+        nextRetryAt = 0;
+    }
+
+    private synchronized void scheduleRetry() {
+        long delay = Math.max(retryBackoff.delayMillis(failedAttempts++),
+                client.getCircuitBreaker().remainingOpenMillis());
+        nextRetryAt = System.currentTimeMillis() + delay;
+        logger.debug("Next offline replay in {} ms (attempt {})", delay, failedAttempts);
+    }
+
+    /**
+     * 每秒执行一次：批量 fsync 离线队列；没有新上报时，退避时间到期后主动重放，
+     * 避免离线期间积压的状态一直发不出去
+     */
+    private void maintainOfflineQueue() {
+        offlineQueue.sync();
+        probeOfflineQueue();
+    }
+
+    private synchronized void probeOfflineQueue() {
+        if (!running || inFlight != null || !pending.isEmpty() || offlineQueue.isEmpty()) return;
+        if (System.currentTimeMillis() < nextRetryAt) return;
+
+        if (enqueueReplay() > 0) {
+            scheduleFlush(0);
+        }
+    }
+
+    private synchronized void complete() {
+        inFlight = null;
+        // 唤醒 stopGracefully 中等待的线程
+        notifyAll();
+        // 在途期间积压的上报：如果没有等待中的防抖任务，立即发送下一条
+        if (running && !pending.isEmpty() && flushTask == null) {
+            scheduleFlush(0);
+        }
+    }
+
+    /**
+     * 立即发送尚未发出的上报（不再等待防抖），最多等待 timeoutMillis，然后停止；
+     * 期间仍未发出或发送失败的上报写入离线队列。服务器不可达（熔断打开）时不等待。
+     */
+    public void stopGracefully(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            if (timeoutMillis > 0 && running && inFlight == null && !pending.isEmpty()) {
+                scheduleFlush(0);
+            }
+            while (running && (inFlight != null || !pending.isEmpty())) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || client.getCircuitBreaker().remainingOpenMillis() > 0) break;
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        stop();
+    }
+
+    public void stop() {
+        synchronized (this) {
+            running = false;
+            // 仍在途的上报（等待超时）也写入离线队列：之后即使发送成功，下次启动时重放一次也无害。
+            // 同一设备已有更新的待发送上报时它已过时
+            if (inFlight != null && !pending.containsKey(inFlight.getId())) {
+                pending.put(inFlight.getId(), inFlight);
+                persistedOnStop = inFlight;
+            }
+            // 尚未发出的上报写入离线队列，下次启动时重放（重放中的记录本来就在队列里，不会重复写入）
+            for (ReportPayload payload : pending.values()) {
+                if (offlineQueue != null) {
+                    offlineQueue.append(payload);
+                    queuedCount.incrementAndGet();
+                } else {
+                    droppedCount.incrementAndGet();
+                }
+            }
+            pending.clear();
+        }
+        executor.shutdownNow();
+
+        if (offlineQueue != null) {
+            try {
+                offlineQueue.close();
+            } catch (IOException e) {
+                logger.error("Failed to close offline queue: {}", e.getMessage());
+            }
+        }
+        logger.info("Report pipeline stopped. submitted={}, sent={}, coalesced={}, dropped={}, queued={}, replayed={}",
+                getSubmittedCount(), getSentCount(), getCoalescedCount(), getDroppedCount(),
+                getQueuedCount(), getReplayedCount());
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+}
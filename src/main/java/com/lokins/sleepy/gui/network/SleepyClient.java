@@ -1,21 +1,32 @@
 package com.lokins.sleepy.gui.network;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.lokins.sleepy.gui.utils.TaskScope;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
 public class SleepyClient {
     private static final Logger logger = LoggerFactory.getLogger(SleepyClient.class);
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    // 预先构建好的 ReportPayload 序列化器，线程安全，所有实例共享
+    private static final ObjectWriter PAYLOAD_WRITER = new ObjectMapper().writerFor(ReportPayload.class);
 
     private final String baseUrl;
     private final String secret;
     private final String deviceName;
     private final String deviceId; // 建议增加一个 ID
 
+    private final HttpUrl reportUrl; // 地址非法时为 null
     private final OkHttpClient httpClient;
-    private final ObjectMapper objectMapper;
+    private final CircuitBreaker circuitBreaker;
+    // 服务端要求的 Retry-After 不超过熔断的最长打开时间
+    private final long maxRetryAfterMillis;
 
     public SleepyClient(String serverUrl, String secret, String deviceName) {
         this.baseUrl = serverUrl.endsWith("/") ? serverUrl : serverUrl + "/";
@@ -24,8 +35,25 @@ public class SleepyClient {
         // 使用设备名的 hash 或处理后的字符串作为唯一 ID
         this.deviceId = deviceName.toLowerCase().replaceAll("\\s+", "-");
 
-        this.httpClient = new OkHttpClient();
-        this.objectMapper = new ObjectMapper();
+        // 共享进程级连接池，避免每次 new SleepyClient 都重新握手
+        this.httpClient = HttpTransport.shared();
+        // 将 secret 放入 URL Query 中: /api/device/set?secret=xxx，只在构造时拼接一次
+        HttpUrl base = HttpUrl.parse(baseUrl + "api/device/set");
+        this.reportUrl = base == null ? null : base.newBuilder()
+                .addQueryParameter("secret", secret)
+                .build();
+        this.maxRetryAfterMillis = HttpTransport.readInt("breaker_open_max_ms", 300_000);
+        this.circuitBreaker = new CircuitBreaker(baseUrl,
+                HttpTransport.readInt("breaker_failure_threshold", 3),
+                new BackoffPolicy(HttpTransport.readInt("breaker_open_base_ms", 5000), maxRetryAfterMillis));
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
 
     public boolean ping() {
@@ -36,52 +64,163 @@ public class SleepyClient {
                     .get()
                     .build();
 
-            try (Response response = httpClient.newCall(request).execute()) {
+            // 测试连接是用户主动发起的，不受熔断限制，但结果计入熔断器
+            // 在任务作用域中调用时（例如测试连接），作用域取消会中止请求
+            Call call = httpClient.newCall(request);
+            try (TaskScope.Registration ignored = TaskScope.onCancel(call::cancel);
+                 Response response = call.execute()) {
+                recordResponse(response);
+                if (!response.isSuccessful()) {
+                    logger.warn("Ping {} failed: HTTP {}", baseUrl, response.code());
+                }
                 return response.isSuccessful(); // 200-299 状态码返回 true
             }
+        } catch (java.io.IOException e) {
+            circuitBreaker.onFailure();
+            logger.warn("Ping {} failed: {}", baseUrl, e.toString());
+            return false;
         } catch (Exception e) {
+            // 通常是非法 URL
+            logger.warn("Ping {} failed: {}", baseUrl, e.getMessage());
             return false;
         }
     }
 
+    /**
+     * 按照文档构建 Payload (不包含 secret)
+     */
+    public ReportPayload createPayload(String appName) {
+        return new ReportPayload(deviceId, deviceName, appName);
+    }
+
+    /**
+     * @param fields 扩展字段，写入 payload 的 fields
+     */
+    public ReportPayload createPayload(String appName, Map<String, Object> fields) {
+        return new ReportPayload(deviceId, deviceName, appName, fields);
+    }
+
+    /**
+     * 直接上报，不经过 {@link ReportPipeline} 合并
+     */
     public void sendReport(String appName) {
+        send(createPayload(appName), null);
+    }
+
+    /**
+     * 异步发送一次上报，结果通过 callback 通知（callback 可为 null）
+     */
+    public void send(ReportPayload payload, ReportCallback callback) {
+        if (!circuitBreaker.tryAcquire()) {
+            logger.debug("Circuit {}, report deferred: {}", circuitBreaker.getState(), payload.getStatus());
+            if (callback != null) callback.onFailure(payload, true);
+            return;
+        }
+
+        if (reportUrl == null) {
+            circuitBreaker.release();
+            logger.error("Invalid server url: {}", baseUrl);
+            if (callback != null) callback.onFailure(payload, false);
+            return;
+        }
+
+        PooledJsonBody body;
         try {
-            // 1. 按照文档构建 Payload (不包含 secret)
-            ReportPayload payload = new ReportPayload(deviceId, deviceName, appName);
-            String json = objectMapper.writeValueAsString(payload);
-
-            // 2. 将 secret 放入 URL Query 中: /api/device/set?secret=xxx
-            HttpUrl url = HttpUrl.parse(baseUrl + "api/device/set")
-                    .newBuilder()
-                    .addQueryParameter("secret", secret)
-                    .build();
+            body = PooledJsonBody.write(PAYLOAD_WRITER, payload);
+        } catch (Exception e) {
+            // 请求没有真正发出，归还半开状态下的探测名额
+            circuitBreaker.release();
+            logger.error("JSON Error: {}", e.getMessage());
+            if (callback != null) callback.onFailure(payload, false);
+            return;
+        }
 
-            RequestBody body = RequestBody.create(json, JSON);
-            Request request = new Request.Builder()
-                    .url(url)
-                    .post(body)
-                    .build();
+        Request request = new Request.Builder()
+                .url(reportUrl)
+                .post(body)
+                .build();
 
+        try {
             httpClient.newCall(request).enqueue(new Callback() {
                 @Override
                 public void onFailure(Call call, java.io.IOException e) {
+                    body.release();
+                    circuitBreaker.onFailure();
                     logger.error("Network Error: {}", e.getMessage());
+                    if (callback != null) callback.onFailure(payload, true);
                 }
 
                 @Override
                 public void onResponse(Call call, Response response) throws java.io.IOException {
+                    body.release();
+                    boolean success = response.isSuccessful();
+                    int code = response.code();
+                    recordResponse(response);
                     try (response) {
-                        if (response.isSuccessful()) {
-                            logger.info("Report Success: {}", appName);
+                        if (success) {
+                            logger.info("Report Success: {}", payload.getStatus());
                         } else {
                             // 打印详细错误方便调试
-                            logger.warn("Server Error: {} | Response: {}", response.code(), response.body().string());
+                            logger.warn("Server Error: {} | Response: {}", code, response.body().string());
                         }
+                    } catch (java.io.IOException e) {
+                        logger.warn("Failed to read response: {}", e.getMessage());
+                    }
+
+                    if (callback == null) return;
+                    if (success) {
+                        callback.onSuccess(payload);
+                    } else {
+                        callback.onFailure(payload, code >= 500 || code == 429);
                     }
                 }
             });
         } catch (Exception e) {
-            logger.error("JSON Error: {}", e.getMessage());
+            // enqueue 被拒绝（例如 Dispatcher 已关闭），请求没有真正发出
+            body.release();
+            circuitBreaker.release();
+            logger.error("Failed to enqueue report: {}", e.getMessage());
+            if (callback != null) callback.onFailure(payload, true);
+        }
+    }
+
+    /**
+     * 把响应结果计入熔断器：429 / 503 带 Retry-After 时按服务端要求暂停，
+     * 其余 5xx 视为失败，其它状态码说明服务端可达
+     */
+    private void recordResponse(Response response) {
+        int code = response.code();
+        long retryAfter = (code == 429 || code == 503) ? parseRetryAfter(response.header("Retry-After"), maxRetryAfterMillis) : -1;
+        if (retryAfter >= 0) {
+            logger.warn("Server asked to retry after {} ms (HTTP {})", retryAfter, code);
+            circuitBreaker.openFor(retryAfter);
+        } else if (code >= 500 || code == 429) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    /**
+     * Retry-After 可以是非负的秒数，也可以是 HTTP 日期；结果不超过 maxMillis，无法解析（包括负数）时返回 -1
+     */
+    static long parseRetryAfter(String value, long maxMillis) {
+        if (value == null || value.isBlank()) return -1;
+        String v = value.trim();
+        if (v.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            // 先按秒比较再换算，过大的值不会在乘法中溢出
+            try {
+                long seconds = Long.parseLong(v);
+                return seconds >= maxMillis / 1000 ? maxMillis : seconds * 1000;
+            } catch (NumberFormatException e) {
+                return maxMillis;
+            }
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.min(maxMillis, Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis()));
+        } catch (Exception e) {
+            return -1;
         }
     }
-}
\ No newline at end of file
+}
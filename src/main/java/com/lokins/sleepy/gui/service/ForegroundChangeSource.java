@@ -0,0 +1,22 @@
+package com.lokins.sleepy.gui.service;
+
+import java.util.function.Consumer;
+
+/**
+ * 前台窗口变化的来源
+ * <p>
+ * 实现方在前台窗口（或其标题）可能发生变化时回调 listener，参数为当前前台窗口标题。
+ * 回调可能重复推送相同的标题，去重由 {@link MonitorService} 负责；
+ * 同一个 source 的回调总是在同一个线程中串行执行。
+ */
+public interface ForegroundChangeSource {
+
+    void start(Consumer<String> listener);
+
+    void stop();
+
+    /**
+     * 用于日志展示的名称
+     */
+    String name();
+}
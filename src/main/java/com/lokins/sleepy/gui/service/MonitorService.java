@@ -1,94 +1,324 @@
 package com.lokins.sleepy.gui.service;
 
+import com.lokins.sleepy.gui.activity.ActivityJournal;
+import com.lokins.sleepy.gui.network.BackoffPolicy;
+import com.lokins.sleepy.gui.network.OfflineReportQueue;
+import com.lokins.sleepy.gui.network.ReportPipeline;
 import com.lokins.sleepy.gui.network.SleepyClient;
 import com.lokins.sleepy.gui.utils.ConfigManager;
-import com.lokins.sleepy.gui.utils.Win32WindowUtil;
+import com.lokins.sleepy.gui.utils.ConfigSnapshot;
+import com.lokins.sleepy.gui.utils.PathUtils;
+import com.lokins.sleepy.gui.utils.Tasks;
+import com.lokins.sleepy.gui.window.ActiveWindowProvider;
+import com.lokins.sleepy.gui.window.ActiveWindowProviders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.Executors;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class MonitorService {
     private static final Logger logger = LoggerFactory.getLogger(MonitorService.class);
+    private static final long JOURNAL_HEARTBEAT_SECONDS = 60;
 
     private final SleepyClient client;
     private final Consumer<String> onAppChanged;
-    private ScheduledExecutorService scheduler;
+    private final ForegroundChangeSource source;
+    private ReportPipeline pipeline;
+    private ActivityJournal journal;
+    // 定时延长当前活动记录：事件驱动的来源在同一窗口停留时不会产生任何回调
+    private ScheduledExecutorService journalHeartbeat;
+    private boolean running;
 
+    // 配置变化时由配置监听线程替换
+    private volatile TitleClassifier classifier;
+    private volatile boolean includeDetail;
+    private final Consumer<ConfigSnapshot> configListener = this::onConfigChanged;
+    private ConfigSnapshot classifierConfig;
+    private String lastTitle = "";
     private String lastApp = "";
+    // 活动记录中是否有一条进行中的记录；前台标题为空（锁屏、桌面）时结束它
+    private boolean journalActive;
 
     public MonitorService(SleepyClient client, Consumer<String> onAppChanged) {
+        this(client, onAppChanged, createSource());
+    }
+
+    /**
+     * @param source 前台窗口变化来源，测试时可传入脚本化的实现
+     */
+    public MonitorService(SleepyClient client, Consumer<String> onAppChanged, ForegroundChangeSource source) {
         this.client = client;
         this.onAppChanged = onAppChanged;
+        this.source = source;
     }
 
-    public void start() {
-        if (scheduler != null && !scheduler.isShutdown()) {
+    public synchronized void start() {
+        if (running) {
             return;
         }
 
-        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "Sleepy-Monitor-Thread");
-            t.setDaemon(true);
-            return t;
-        });
-
-        // 关键改动：不再使用固定的 scheduleAtFixedRate
-        // 改为调用一个自适应的调度方法
-        adaptiveSchedule();
-        logger.info("Monitor Service started with adaptive interval.");
+        pipeline = new ReportPipeline(client, readDebounceMillis(), openOfflineQueue(), readRetryBackoff());
+        journal = openActivityJournal();
+        if (journal != null) {
+            journalHeartbeat = Tasks.newScheduler("Sleepy-Activity");
+            journalHeartbeat.scheduleAtFixedRate(this::journalHeartbeat,
+                    JOURNAL_HEARTBEAT_SECONDS, JOURNAL_HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        }
+        classifier = createClassifier();
+        // 重新开始监控时第一次采样总会触发上报并开始一条活动记录
+        lastTitle = "";
+        lastApp = "";
+        journalActive = false;
+        addConfigListener();
+        source.start(this::onForegroundChanged);
+        running = true;
+        logger.info("Monitor Service started, foreground source: {}", source.name());
     }
 
     /**
-     * 自适应调度逻辑：每次执行完任务后，根据最新配置决定下一次什么时候执行
+     * 根据 [settings] detect_mode 选择前台窗口来源：
+     * auto（默认）在 Win32 实现下使用系统事件通知，其它实现退回轮询；poll 强制轮询
      */
-    private void adaptiveSchedule() {
-        if (scheduler == null || scheduler.isShutdown()) return;
+    private static ForegroundChangeSource createSource() {
+        String mode = "auto";
+        try {
+            mode = ConfigManager.getInstance().snapshot().get("settings", "detect_mode", "auto");
+        } catch (Exception e) {
+            logger.warn("Failed to read detect_mode config, using auto");
+        }
 
-        // 1. 执行核心检测逻辑
-        checkCurrentWindow();
+        ActiveWindowProvider provider = ActiveWindowProviders.get();
+        Supplier<ForegroundChangeSource> polling =
+                () -> new PollingForegroundSource(provider::getActiveWindowTitle, MonitorService::readIntervalSeconds);
+        if ("auto".equalsIgnoreCase(mode) && "win32".equals(provider.name())) {
+            // 系统事件钩子注册失败时退回轮询
+            return new WinEventForegroundSource(polling);
+        }
+        return polling.get();
+    }
 
-        // 2. 从配置管理器获取最新的间隔时间
-        int delay = 5; // 默认 5 秒
+    /**
+     * 从配置快照获取最新的轮询间隔，每轮轮询后重新读取（无锁，不解析字符串）
+     */
+    private static int readIntervalSeconds() {
         try {
-            String intervalStr = ConfigManager.getInstance().get("settings", "interval", "5");
-            delay = Integer.parseInt(intervalStr);
-            // 限制最小值，防止用户输入 0 导致 CPU 飙升
-            if (delay < 1) delay = 1;
+            return ConfigManager.getInstance().snapshot().getInt("settings", "interval", 5);
         } catch (Exception e) {
             logger.warn("Failed to read interval config, using default 5s");
+            return 5;
+        }
+    }
+
+    private long readDebounceMillis() {
+        try {
+            return ConfigManager.getInstance().snapshot().getLong("report", "debounce_ms", 1000);
+        } catch (Exception e) {
+            logger.warn("Failed to read report debounce config, using default 1000ms");
+            return 1000;
+        }
+    }
+
+    private BackoffPolicy readRetryBackoff() {
+        try {
+            ConfigSnapshot config = ConfigManager.getInstance().snapshot();
+            return new BackoffPolicy(config.getLong("network", "retry_base_ms", 2000),
+                    config.getLong("network", "retry_max_ms", 300_000));
+        } catch (Exception e) {
+            logger.warn("Failed to read retry backoff config, using defaults");
+            return new BackoffPolicy(2000, 300_000);
+        }
+    }
+
+    private OfflineReportQueue openOfflineQueue() {
+        try {
+            ConfigSnapshot config = ConfigManager.getInstance().snapshot();
+            long maxBytes = config.getLong("queue", "max_bytes", 262144);
+            long maxAgeMinutes = config.getLong("queue", "max_age_minutes", 360);
+            return new OfflineReportQueue(Path.of(PathUtils.getDataPath("queue")),
+                    maxBytes, TimeUnit.MINUTES.toMillis(maxAgeMinutes));
+        } catch (Exception e) {
+            logger.error("Failed to open offline report queue, failed reports will be dropped: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 根据 [activity] 段打开本地活动记录：enabled（默认 true）、retention_days（默认 400）
+     * 与 max_gap_seconds（默认 300，超过这么久没有任何采样时视为系统休眠，这段时间不计入）
+     */
+    private ActivityJournal openActivityJournal() {
+        try {
+            ConfigSnapshot config = ConfigManager.getInstance().snapshot();
+            if (!config.getBoolean("activity", "enabled", true)) {
+                return null;
+            }
+            int retentionDays = config.getInt("activity", "retention_days", 400);
+            // 不能短于心跳间隔，否则正常停留也会被当成中断
+            long maxGapSeconds = Math.max(JOURNAL_HEARTBEAT_SECONDS * 2,
+                    config.getLong("activity", "max_gap_seconds", 300));
+            return new ActivityJournal(Path.of(PathUtils.getDataPath("activity")), ZoneId.systemDefault(),
+                    retentionDays, Duration.ofSeconds(maxGapSeconds));
+        } catch (Exception e) {
+            logger.error("Failed to open activity journal, local history will not be recorded: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private TitleClassifier createClassifier() {
+        try {
+            return createClassifier(ConfigManager.getInstance().snapshot());
+        } catch (Exception e) {
+            logger.warn("Failed to load title rules, using defaults: {}", e.getMessage());
+            return new TitleClassifier(Map.of(), true, 256);
+        }
+    }
+
+    private TitleClassifier createClassifier(ConfigSnapshot config) {
+        boolean splitSuffix = config.getBoolean("settings", "classifier_split_suffix", true);
+        int cacheSize = config.getInt("settings", "classifier_cache_size", 256);
+        includeDetail = config.getBoolean("report", "include_detail", true);
+        classifierConfig = config;
+        return new TitleClassifier(config.getSection("classifier"), splitSuffix, cacheSize);
+    }
+
+    private void addConfigListener() {
+        try {
+            ConfigManager.getInstance().addListener(configListener);
+        } catch (Exception e) {
+            logger.warn("Failed to watch config changes: {}", e.getMessage());
         }
+    }
 
-        // 3. 递归调度下一次任务
-        scheduler.schedule(this::adaptiveSchedule, delay, TimeUnit.SECONDS);
+    private void removeConfigListener() {
+        try {
+            ConfigManager.getInstance().removeListener(configListener);
+        } catch (Exception e) {
+            logger.warn("Failed to unwatch config changes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 标题规则相关的配置变化时重新构建归一化器，不需要重启监控
+     */
+    private synchronized void onConfigChanged(ConfigSnapshot config) {
+        if (!running) return;
+        ConfigSnapshot previous = classifierConfig;
+        if (config.sameSection(previous, "classifier")
+                && config.getBoolean("settings", "classifier_split_suffix", true)
+                == previous.getBoolean("settings", "classifier_split_suffix", true)
+                && config.getInt("settings", "classifier_cache_size", 256)
+                == previous.getInt("settings", "classifier_cache_size", 256)
+                && config.getBoolean("report", "include_detail", true)
+                == previous.getBoolean("report", "include_detail", true)) {
+            return;
+        }
+        classifier = createClassifier(config);
+        logger.info("Title rules reloaded");
+    }
+
+    /**
+     * 只延长进行中的记录：前台标题为空期间不计时
+     */
+    private synchronized void journalHeartbeat() {
+        if (running && journalActive) {
+            journal.touch(Instant.now());
+        }
     }
 
-    private void checkCurrentWindow() {
+    private synchronized void onForegroundChanged(String currentTitle) {
         try {
-            String currentApp = Win32WindowUtil.getActiveWindowTitle();
-            if (currentApp == null || currentApp.isEmpty()) return;
+            if (!running || currentTitle == null) return;
+            Instant now = Instant.now();
+            if (currentTitle.isEmpty()) {
+                // 没有前台窗口：结束当前记录，回到同一应用时重新开始一条；上报保持不变
+                if (journalActive) {
+                    journal.end(now);
+                    journalActive = false;
+                }
+                lastTitle = "";
+                return;
+            }
+            // 每次采样或通知都延长当前记录，配合心跳，进程意外退出时最多损失一分钟
+            if (journalActive) {
+                journal.touch(now);
+            }
+            // 标题完全没变（采样器会返回同一个实例）时跳过归一化
+            if (currentTitle.equals(lastTitle)) return;
+            lastTitle = currentTitle;
 
-            if (!currentApp.equals(lastApp)) {
-                logger.info("Detected app change: {}", currentApp);
-                client.sendReport(currentApp);
+            // 只有规范应用名变化时才上报，同一应用内切换文档不再产生上报
+            TitleClassifier.AppInfo app = classifier.classify(currentTitle);
+            if (!app.name().equals(lastApp)) {
+                logger.info("Detected app change: {} ({})", app.name(), currentTitle);
+                if (includeDetail && app.detail() != null) {
+                    pipeline.submit(app.name(), Map.of("detail", app.detail()));
+                } else {
+                    pipeline.submit(app.name());
+                }
+                startJournalRecord(app.name(), now);
 
                 if (onAppChanged != null) {
-                    onAppChanged.accept(currentApp);
+                    onAppChanged.accept(app.name());
                 }
-                lastApp = currentApp;
+                lastApp = app.name();
+            } else if (!journalActive) {
+                startJournalRecord(app.name(), now);
             }
         } catch (Exception e) {
             logger.error("Error during monitoring: {}", e.getMessage());
         }
     }
 
+    private void startJournalRecord(String app, Instant now) {
+        if (journal != null) {
+            journal.switchTo(app, now);
+            journalActive = true;
+        }
+    }
+
     public void stop() {
-        if (scheduler != null) {
-            scheduler.shutdownNow();
-            logger.info("Monitor Service stopped.");
+        stop(0);
+    }
+
+    /**
+     * 停止监控，并在 flushTimeoutMillis 内尽量把尚未发出的上报发送出去（见 {@link ReportPipeline#stopGracefully}）
+     */
+    public synchronized void stop(long flushTimeoutMillis) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        removeConfigListener();
+        source.stop();
+        pipeline.stopGracefully(flushTimeoutMillis);
+        if (journal != null) {
+            journalHeartbeat.shutdownNow();
+            journal.close();
+            journal = null;
+            journalActive = false;
         }
+        logger.info("Monitor Service stopped.");
+    }
+
+    /**
+     * 当前的上报管道，用于读取 sent / coalesced / dropped 统计
+     */
+    public ReportPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * 本地活动记录，未启用或打开失败时为 null
+     */
+    public synchronized ActivityJournal getJournal() {
+        return journal;
     }
 }
\ No newline at end of file
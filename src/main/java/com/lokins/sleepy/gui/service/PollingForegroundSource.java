@@ -0,0 +1,69 @@
+package com.lokins.sleepy.gui.service;
+
+import com.lokins.sleepy.gui.utils.Tasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 轮询实现：没有系统通知可用时的兜底方案
+ */
+public class PollingForegroundSource implements ForegroundChangeSource {
+    private static final Logger logger = LoggerFactory.getLogger(PollingForegroundSource.class);
+
+    private final Supplier<String> titleSupplier;
+    private final IntSupplier intervalSeconds;
+    private ScheduledExecutorService scheduler;
+    private Consumer<String> listener;
+
+    /**
+     * @param intervalSeconds 每次轮询后重新读取，配置修改后下一轮即生效
+     */
+    public PollingForegroundSource(Supplier<String> titleSupplier, IntSupplier intervalSeconds) {
+        this.titleSupplier = titleSupplier;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @Override
+    public void start(Consumer<String> listener) {
+        if (scheduler != null && !scheduler.isShutdown()) {
+            return;
+        }
+        this.listener = listener;
+        scheduler = Tasks.newScheduler("Sleepy-Monitor");
+
+        // 不使用固定的 scheduleAtFixedRate，而是每次执行完后根据最新配置决定下一次什么时候执行
+        scheduler.execute(this::adaptiveSchedule);
+    }
+
+    private void adaptiveSchedule() {
+        if (scheduler == null || scheduler.isShutdown()) return;
+
+        try {
+            listener.accept(titleSupplier.get());
+        } catch (Exception e) {
+            logger.error("Error during monitoring: {}", e.getMessage());
+        }
+
+        // 限制最小值，防止用户输入 0 导致 CPU 飙升
+        int delay = Math.max(1, intervalSeconds.getAsInt());
+        scheduler.schedule(this::adaptiveSchedule, delay, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "polling";
+    }
+}
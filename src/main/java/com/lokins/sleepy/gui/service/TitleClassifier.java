@@ -0,0 +1,134 @@
+package com.lokins.sleepy.gui.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 窗口标题归一化：把原始标题映射为规范的应用名和可选的详情
+ * <p>
+ * 规则来自 config.ini 的 [classifier] 段，格式为 {@code 应用名 = 正则}，正则需匹配完整标题，
+ * 第一个捕获组（如有）作为详情。所有规则在构造时编译为一个按顺序排列的组合正则，
+ * 匹配一次即可得到命中的规则，而不是逐条尝试；靠前的规则优先。
+ * <p>
+ * 没有规则命中时，按 Windows 常见的 “详情 - 应用名” 约定取最后一个分隔符之后的部分作为应用名。
+ * 结果按原始标题缓存在有界 LRU 中。
+ */
+public class TitleClassifier {
+    private static final Logger logger = LoggerFactory.getLogger(TitleClassifier.class);
+
+    private static final String[] SUFFIX_SEPARATORS = {" - ", " — ", " – "};
+
+    /**
+     * 归一化结果
+     * @param name 规范应用名
+     * @param detail 详情（如文档名、网页标题），没有时为 null
+     */
+    public record AppInfo(String name, String detail) {
+    }
+
+    private final Pattern combined;
+    private final List<String> ruleNames = new ArrayList<>();
+    // 每条规则外层包裹组的组号，内层第一个捕获组为 groupIndex + 1
+    private final List<Integer> groupIndexes = new ArrayList<>();
+    private final List<Boolean> hasDetail = new ArrayList<>();
+    private final boolean splitSuffix;
+    private final Map<String, AppInfo> cache;
+
+    /**
+     * @param rules 应用名 -> 正则，按迭代顺序决定优先级
+     * @param splitSuffix 没有规则命中时是否按 “详情 - 应用名” 拆分
+     * @param cacheSize LRU 缓存容量
+     */
+    public TitleClassifier(Map<String, String> rules, boolean splitSuffix, int cacheSize) {
+        this.splitSuffix = splitSuffix;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AppInfo> eldest) {
+                return size() > Math.max(1, cacheSize);
+            }
+        };
+
+        StringBuilder regex = new StringBuilder();
+        int nextGroup = 1;
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            int groups;
+            try {
+                groups = Pattern.compile(rule.getValue()).matcher("").groupCount();
+            } catch (PatternSyntaxException e) {
+                logger.warn("忽略无效的标题规则 [{}]: {}", rule.getKey(), e.getDescription());
+                continue;
+            }
+            if (regex.length() > 0) regex.append('|');
+            regex.append('(').append(rule.getValue()).append(')');
+
+            ruleNames.add(rule.getKey());
+            groupIndexes.add(nextGroup);
+            hasDetail.add(groups > 0);
+            nextGroup += 1 + groups;
+        }
+
+        Pattern compiled = null;
+        if (!ruleNames.isEmpty()) {
+            try {
+                compiled = Pattern.compile(regex.toString());
+            } catch (PatternSyntaxException e) {
+                // 单条规则合法但组合后非法（例如重复的命名组）
+                logger.warn("标题规则组合失败，仅使用默认拆分: {}", e.getDescription());
+                ruleNames.clear();
+            }
+        }
+        this.combined = compiled;
+        logger.info("已加载 {} 条标题规则", ruleNames.size());
+    }
+
+    public synchronized AppInfo classify(String title) {
+        AppInfo info = cache.get(title);
+        if (info == null) {
+            info = doClassify(title);
+            cache.put(title, info);
+        }
+        return info;
+    }
+
+    private AppInfo doClassify(String title) {
+        if (combined != null) {
+            Matcher m = combined.matcher(title);
+            if (m.matches()) {
+                for (int i = 0; i < ruleNames.size(); i++) {
+                    int group = groupIndexes.get(i);
+                    if (m.start(group) < 0) continue;
+                    String detail = hasDetail.get(i) ? m.group(group + 1) : null;
+                    return new AppInfo(ruleNames.get(i), blankToNull(detail));
+                }
+            }
+        }
+
+        if (splitSuffix) {
+            int best = -1;
+            int sepLength = 0;
+            for (String sep : SUFFIX_SEPARATORS) {
+                int idx = title.lastIndexOf(sep);
+                if (idx > best) {
+                    best = idx;
+                    sepLength = sep.length();
+                }
+            }
+            if (best > 0 && best + sepLength < title.length()) {
+                return new AppInfo(title.substring(best + sepLength).trim(), blankToNull(title.substring(0, best).trim()));
+            }
+        }
+        return new AppInfo(title, null);
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+}
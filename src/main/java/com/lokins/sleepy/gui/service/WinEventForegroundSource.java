@@ -0,0 +1,146 @@
+package com.lokins.sleepy.gui.service;
+
+import com.lokins.sleepy.gui.utils.Win32WindowUtil;
+import com.sun.jna.platform.win32.Kernel32;
+import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinDef;
+import com.sun.jna.platform.win32.WinNT;
+import com.sun.jna.platform.win32.WinUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Windows 事件驱动实现：通过 SetWinEventHook 订阅前台窗口切换与窗口标题变化
+ * <p>
+ * 钩子以 WINEVENT_OUTOFCONTEXT 方式注册，回调由系统投递到本线程的消息循环中，
+ * 空闲时线程阻塞在 GetMessage 上，不占用 CPU；窗口切换后几乎立即收到通知。
+ * 钩子注册失败（例如受限的会话中）时改用 fallback 提供的来源（通常是轮询）。
+ */
+public class WinEventForegroundSource implements ForegroundChangeSource {
+    private static final Logger logger = LoggerFactory.getLogger(WinEventForegroundSource.class);
+
+    private static final int EVENT_SYSTEM_FOREGROUND = 0x0003;
+    private static final int EVENT_OBJECT_NAMECHANGE = 0x800C;
+    private static final int WINEVENT_OUTOFCONTEXT = 0x0000;
+    private static final int WINEVENT_SKIPOWNPROCESS = 0x0002;
+    private static final int OBJID_WINDOW = 0;
+
+    private final Supplier<ForegroundChangeSource> fallbackFactory;
+
+    private Thread loopThread;
+    private volatile int loopThreadId;
+    // 必须持有回调的强引用，否则被 GC 回收后系统回调会导致 JVM 崩溃
+    private WinUser.WinEventProc callback;
+    // 钩子注册失败后代替本实现工作的来源
+    private volatile ForegroundChangeSource fallback;
+
+    /**
+     * @param fallbackFactory 钩子注册失败时创建替代来源
+     */
+    public WinEventForegroundSource(Supplier<ForegroundChangeSource> fallbackFactory) {
+        this.fallbackFactory = fallbackFactory;
+    }
+
+    @Override
+    public void start(Consumer<String> listener) {
+        if (fallback != null || (loopThread != null && loopThread.isAlive())) {
+            return;
+        }
+
+        callback = new WinUser.WinEventProc() {
+            @Override
+            public void callback(WinNT.HANDLE hook, WinDef.DWORD event, WinDef.HWND hwnd,
+                                 WinDef.LONG idObject, WinDef.LONG idChild,
+                                 WinDef.DWORD eventThread, WinDef.DWORD eventTime) {
+                // 标题变化事件会来自所有窗口和子控件，只关心前台顶层窗口本身
+                if (event.intValue() == EVENT_OBJECT_NAMECHANGE
+                        && (idObject.intValue() != OBJID_WINDOW || !hwnd.equals(User32.INSTANCE.GetForegroundWindow()))) {
+                    return;
+                }
+                try {
+                    listener.accept(Win32WindowUtil.getActiveWindowTitle());
+                } catch (Exception e) {
+                    logger.error("Error during monitoring: {}", e.getMessage());
+                }
+            }
+        };
+
+        CountDownLatch ready = new CountDownLatch(1);
+        // 这里必须是平台线程：钩子与消息队列绑定在创建它的线程上，且 GetMessage 会一直阻塞在本地调用中
+        loopThread = new Thread(() -> runMessageLoop(listener, ready), "Sleepy-WinEvent-Thread");
+        loopThread.setDaemon(true);
+        loopThread.start();
+        try {
+            ready.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runMessageLoop(Consumer<String> listener, CountDownLatch ready) {
+        loopThreadId = Kernel32.INSTANCE.GetCurrentThreadId();
+        int flags = WINEVENT_OUTOFCONTEXT | WINEVENT_SKIPOWNPROCESS;
+        WinNT.HANDLE foregroundHook = User32.INSTANCE.SetWinEventHook(
+                EVENT_SYSTEM_FOREGROUND, EVENT_SYSTEM_FOREGROUND, null, callback, 0, 0, flags);
+        WinNT.HANDLE nameHook = User32.INSTANCE.SetWinEventHook(
+                EVENT_OBJECT_NAMECHANGE, EVENT_OBJECT_NAMECHANGE, null, callback, 0, 0, flags);
+
+        if (foregroundHook == null) {
+            if (nameHook != null) {
+                User32.INSTANCE.UnhookWinEvent(nameHook);
+            }
+            // 在 start 返回前切换好，调用方随后看到的 name() 已是替代来源
+            startFallback(listener);
+            ready.countDown();
+            return;
+        }
+        ready.countDown();
+
+        // 启动时先推送一次当前窗口
+        listener.accept(Win32WindowUtil.getActiveWindowTitle());
+
+        WinUser.MSG msg = new WinUser.MSG();
+        while (User32.INSTANCE.GetMessage(msg, null, 0, 0) > 0) {
+            User32.INSTANCE.TranslateMessage(msg);
+            User32.INSTANCE.DispatchMessage(msg);
+        }
+
+        User32.INSTANCE.UnhookWinEvent(foregroundHook);
+        if (nameHook != null) {
+            User32.INSTANCE.UnhookWinEvent(nameHook);
+        }
+        logger.info("WinEvent message loop exited.");
+    }
+
+    private void startFallback(Consumer<String> listener) {
+        ForegroundChangeSource source = fallbackFactory.get();
+        logger.warn("SetWinEventHook failed, falling back to {}", source.name());
+        source.start(listener);
+        fallback = source;
+    }
+
+    @Override
+    public void stop() {
+        ForegroundChangeSource source = fallback;
+        if (source != null) {
+            source.stop();
+            fallback = null;
+        }
+        if (loopThread == null) return;
+        // 向消息循环线程投递 WM_QUIT，使 GetMessage 返回 0
+        User32.INSTANCE.PostThreadMessage(loopThreadId, WinUser.WM_QUIT,
+                new WinDef.WPARAM(0), new WinDef.LPARAM(0));
+        loopThread = null;
+    }
+
+    @Override
+    public String name() {
+        ForegroundChangeSource source = fallback;
+        return source == null ? "win-event" : source.name() + " (win-event unavailable)";
+    }
+}
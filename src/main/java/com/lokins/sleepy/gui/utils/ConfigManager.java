@@ -1,19 +1,73 @@
 package com.lokins.sleepy.gui.utils;
 
+import org.ini4j.Profile;
 import org.ini4j.Wini;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * 配置管理
+ * <p>
+ * 读取走不可变的 {@link ConfigSnapshot}，通过 volatile 引用发布，不加锁；
+ * 底层的 Wini 不是线程安全的，只在持有 this 锁时修改。set 以及外部编辑 config.ini
+ * （通过 WatchService 监听）都会生成新的快照，内容有变化时通知已注册的监听器。
+ * <p>
+ * save 不在调用线程上写磁盘：由后台线程合并短时间内的多次保存，先写入临时文件并 fsync，
+ * 再把旧文件复制为 config.ini.bak，最后原子重命名覆盖 config.ini。进程在任何时刻被结束，
+ * config.ini 要么是旧内容，要么是新内容，不会被截断。
+ */
 public class ConfigManager {
     private static final Logger logger = LoggerFactory.getLogger(ConfigManager.class);
-    private static ConfigManager instance;
+    private static volatile ConfigManager instance;
+
+    // 编辑器保存文件时往往连续触发多次修改事件，等待片刻后再重新加载
+    private static final long RELOAD_SETTLE_MILLIS = 200;
+    // 连续保存（例如多个页面先后点击保存）合并为一次写入
+    private static final long SAVE_DEBOUNCE_MILLIS = 500;
 
     // --- 核心修改：使用 PathUtils 获取隐藏目录下的路径 ---
     private final File configFile = new File(PathUtils.getDataPath("config.ini"));
+    private final Path tempFile = configFile.toPath().resolveSibling("config.ini.tmp");
+    private final Path backupFile = configFile.toPath().resolveSibling("config.ini.bak");
     private final Wini ini;
+    private volatile ConfigSnapshot snapshot;
+    // 本进程最后一次写入的内容，文件监听据此忽略自己的写入
+    private volatile byte[] lastWritten;
+
+    private final ScheduledExecutorService writer = Tasks.newScheduler("Sleepy-Config-Writer");
+    // 以下三个字段由 this 锁保护
+    private boolean dirty;
+    private boolean writeScheduled;
+    // set 之后尚未写入磁盘的键值（段 -> 键 -> 值），重新加载外部修改时据此保留应用内的修改
+    private Map<String, Map<String, String>> unsaved = new LinkedHashMap<>();
+    private final CopyOnWriteArrayList<Consumer<ConfigSnapshot>> listeners = new CopyOnWriteArrayList<>();
 
     private ConfigManager() throws IOException {
         // PathUtils.getDataPath 内部已经处理了 mkdirs()，但这里双重检查更稳健
@@ -22,33 +76,290 @@ public class ConfigManager {
             parent.mkdirs();
         }
 
+        restoreFromBackupIfNeeded();
         if (!configFile.exists()) {
             configFile.createNewFile();
             logger.info("未检测到配置文件，已在隐藏目录创建: {}", configFile.getAbsolutePath());
         }
 
         ini = new Wini(configFile);
+        snapshot = buildSnapshot();
+        startWatcher();
+        // 退出前把尚未写入的修改落盘
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "Sleepy-Config-Flush"));
     }
 
-    public static synchronized ConfigManager getInstance() throws IOException {
-        if (instance == null) {
-            instance = new ConfigManager();
+    public static ConfigManager getInstance() throws IOException {
+        ConfigManager manager = instance;
+        if (manager == null) {
+            synchronized (ConfigManager.class) {
+                manager = instance;
+                if (manager == null) {
+                    manager = new ConfigManager();
+                    instance = manager;
+                }
+            }
         }
-        return instance;
+        return manager;
+    }
+
+    /**
+     * 当前配置快照，可以长期持有；需要最新值时重新调用
+     */
+    public ConfigSnapshot snapshot() {
+        return snapshot;
     }
 
     public String get(String section, String key, String defaultValue) {
-        String value = ini.get(section, key);
-        return value != null ? value : defaultValue;
+        return snapshot.get(section, key, defaultValue);
+    }
+
+    /**
+     * 读取整个段的所有键值，保持文件中的顺序；段不存在时返回空 Map
+     */
+    public Map<String, String> getSection(String section) {
+        return snapshot.getSection(section);
     }
 
     public void set(String section, String key, String value) {
-        ini.put(section, key, value);
+        synchronized (this) {
+            ini.put(section, key, value);
+            unsaved.computeIfAbsent(section, s -> new LinkedHashMap<>()).put(key, value);
+        }
+        publish();
+    }
+
+    /**
+     * 请求把当前配置写入磁盘，立即返回；实际写入在后台线程上合并进行
+     */
+    public synchronized void save() {
+        dirty = true;
+        if (!writeScheduled) {
+            writeScheduled = true;
+            writer.schedule(this::writeIfDirty, SAVE_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 立即写入尚未保存的修改并等待完成，用于退出前
+     */
+    public void flush() {
+        writeIfDirty();
+    }
+
+    private void writeIfDirty() {
+        byte[] content;
+        Map<String, Map<String, String>> written;
+        synchronized (this) {
+            writeScheduled = false;
+            if (!dirty) return;
+            dirty = false;
+            written = unsaved;
+            unsaved = new LinkedHashMap<>();
+            try {
+                StringWriter text = new StringWriter();
+                ini.store(text);
+                content = text.toString().getBytes(StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                logger.error("[Config] 序列化配置失败", e);
+                keepUnsaved(written);
+                return;
+            }
+        }
+
+        // 同一时刻只有一个线程写文件（后台写线程或退出时的 flush）
+        synchronized (writer) {
+            try {
+                writeAtomically(content);
+                // 使用 logger 代替 System.out，确保日志文件也能记录保存动作
+                logger.info("[Config] 配置已成功保存至: {}", configFile.getAbsolutePath());
+            } catch (IOException e) {
+                logger.error("[Config] 写入配置文件失败，将在下次保存时重试", e);
+                synchronized (this) {
+                    dirty = true;
+                    keepUnsaved(written);
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入失败时，把这次没能落盘的键值放回 unsaved；期间又被 set 的键以新值为准
+     */
+    private synchronized void keepUnsaved(Map<String, Map<String, String>> written) {
+        written.forEach((section, values) -> {
+            Map<String, String> current = unsaved.computeIfAbsent(section, s -> new LinkedHashMap<>());
+            values.forEach(current::putIfAbsent);
+        });
+    }
+
+    private void writeAtomically(byte[] content) throws IOException {
+        Path target = configFile.toPath();
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        // 保留一代备份
+        if (Files.size(target) > 0) {
+            Files.copy(target, backupFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        lastWritten = content;
+        try {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.getParent());
     }
 
-    public void save() throws IOException {
-        ini.store();
-        // 使用 logger 代替 System.out，确保日志文件也能记录保存动作
-        logger.info("[Config] 配置已成功保存至: {}", configFile.getAbsolutePath());
+    /**
+     * 让重命名本身也落盘；Windows 不支持打开目录，忽略
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            // 不支持目录 fsync 的平台
+        }
+    }
+
+    /**
+     * 旧版本原地写入时被结束会留下空的 config.ini，此时从备份恢复
+     */
+    private void restoreFromBackupIfNeeded() {
+        try {
+            Files.deleteIfExists(tempFile);
+            if ((!configFile.exists() || configFile.length() == 0) && Files.size(backupFile) > 0) {
+                Files.copy(backupFile, configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                logger.warn("配置文件为空或缺失，已从备份恢复: {}", backupFile);
+            }
+        } catch (IOException e) {
+            // 没有备份
+        }
+    }
+
+    /**
+     * 注册配置变化监听器，在发生变化的线程（调用 set 的线程或文件监听线程）上回调，参数为新的快照
+     */
+    public void addListener(Consumer<ConfigSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<ConfigSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    private synchronized ConfigSnapshot buildSnapshot() {
+        Map<String, Map<String, String>> sections = new LinkedHashMap<>();
+        for (String name : ini.keySet()) {
+            Profile.Section section = ini.get(name);
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String key : section.keySet()) {
+                values.put(key, section.get(key));
+            }
+            sections.put(name, values);
+        }
+        return new ConfigSnapshot(sections);
+    }
+
+    /**
+     * 用 Wini 的当前内容生成快照，与旧快照不同时发布并通知监听器
+     */
+    private void publish() {
+        ConfigSnapshot next;
+        synchronized (this) {
+            next = buildSnapshot();
+            if (next.equals(snapshot)) return;
+            snapshot = next;
+        }
+        for (Consumer<ConfigSnapshot> listener : listeners) {
+            try {
+                listener.accept(next);
+            } catch (Exception e) {
+                logger.error("配置监听器执行失败", e);
+            }
+        }
+    }
+
+    private void reloadFromDisk() {
+        try {
+            byte[] current = Files.readAllBytes(configFile.toPath());
+            if (Arrays.equals(current, lastWritten)) {
+                // 自己刚写入的内容
+                return;
+            }
+            synchronized (this) {
+                ini.clear();
+                ini.load(new ByteArrayInputStream(current));
+                reapplyUnsaved();
+            }
+            publish();
+        } catch (IOException e) {
+            logger.warn("重新加载配置文件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 外部修改与应用内尚未写入磁盘的修改（等待合并保存）同时存在时，应用内修改的键以应用内的值为准，
+     * 其余键采用文件中的内容；随后的保存会把合并结果写回。调用时持有 this 锁
+     */
+    private void reapplyUnsaved() {
+        unsaved.forEach((section, values) -> values.forEach((key, value) -> {
+            // 只记录键名，值可能是密钥
+            if (!Objects.equals(value, ini.get(section, key))) {
+                logger.warn("[Config] 配置文件在保存前被外部修改，[{}] {} 保留应用内尚未保存的值", section, key);
+            }
+            ini.put(section, key, value);
+        }));
+    }
+
+    /**
+     * 监听配置文件所在目录（WatchService 只能监听目录），只处理 config.ini 的变化
+     */
+    private void startWatcher() {
+        Path dir = configFile.getParentFile().toPath();
+        Path name = configFile.toPath().getFileName();
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            logger.warn("无法监听配置文件变化，外部修改需要重启后生效: {}", e.getMessage());
+            return;
+        }
+
+        Tasks.start("Sleepy-Config-Watcher", () -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    boolean changed = false;
+                    // 临时文件与备份文件的事件不在此列
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (name.equals(event.context())) {
+                            changed = true;
+                        }
+                    }
+                    key.reset();
+                    if (!changed) continue;
+
+                    Thread.sleep(RELOAD_SETTLE_MILLIS);
+                    // 等待期间积累的事件一并丢弃
+                    WatchKey pending;
+                    while ((pending = watchService.poll()) != null) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reloadFromDisk();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // 进程退出
+            }
+        });
     }
-}
\ No newline at end of file
+}
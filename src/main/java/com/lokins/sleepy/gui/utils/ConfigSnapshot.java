@@ -0,0 +1,117 @@
+package com.lokins.sleepy.gui.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * config.ini 某一时刻的不可变快照
+ * <p>
+ * 所有值在创建快照时解析一次：数字与布尔值预先转换好，读取时只做两次 Map 查找，
+ * 不加锁也不解析字符串。配置变化时由 {@link ConfigManager} 发布新的快照替换旧的。
+ */
+public final class ConfigSnapshot {
+
+    private record Value(String raw, Long number, boolean bool) {
+        static Value of(String raw) {
+            Long number = null;
+            try {
+                number = Long.parseLong(raw.trim());
+            } catch (NumberFormatException e) {
+                // 非数字值，getInt / getLong 返回默认值
+            }
+            return new Value(raw, number, Boolean.parseBoolean(raw.trim()));
+        }
+    }
+
+    private static final ConfigSnapshot EMPTY = new ConfigSnapshot(Map.of());
+
+    private final Map<String, Map<String, Value>> sections;
+    // 仅用于 equals，保留原始文本
+    private final Map<String, Map<String, String>> raw;
+
+    /**
+     * @param sections 段名 -> (键 -> 原始值)，会被复制
+     */
+    public ConfigSnapshot(Map<String, Map<String, String>> sections) {
+        Map<String, Map<String, Value>> parsed = new LinkedHashMap<>();
+        Map<String, Map<String, String>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, String>> section : sections.entrySet()) {
+            Map<String, Value> values = new LinkedHashMap<>();
+            Map<String, String> rawValues = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : section.getValue().entrySet()) {
+                if (entry.getValue() == null) continue;
+                values.put(entry.getKey(), Value.of(entry.getValue()));
+                rawValues.put(entry.getKey(), entry.getValue());
+            }
+            parsed.put(section.getKey(), values);
+            copy.put(section.getKey(), Collections.unmodifiableMap(rawValues));
+        }
+        this.sections = parsed;
+        this.raw = Collections.unmodifiableMap(copy);
+    }
+
+    public static ConfigSnapshot empty() {
+        return EMPTY;
+    }
+
+    private Value value(String section, String key) {
+        Map<String, Value> values = sections.get(section);
+        return values == null ? null : values.get(key);
+    }
+
+    public String get(String section, String key, String defaultValue) {
+        Value value = value(section, key);
+        return value != null ? value.raw : defaultValue;
+    }
+
+    /**
+     * @return 整数值；缺失、非数字或超出 int 范围时返回默认值
+     */
+    public int getInt(String section, String key, int defaultValue) {
+        Value value = value(section, key);
+        if (value == null || value.number == null
+                || value.number < Integer.MIN_VALUE || value.number > Integer.MAX_VALUE) {
+            return defaultValue;
+        }
+        return value.number.intValue();
+    }
+
+    public long getLong(String section, String key, long defaultValue) {
+        Value value = value(section, key);
+        return value != null && value.number != null ? value.number : defaultValue;
+    }
+
+    /**
+     * @return 布尔值，与 {@link Boolean#parseBoolean} 一致：只有 "true"（不区分大小写）为 true；缺失时返回默认值
+     */
+    public boolean getBoolean(String section, String key, boolean defaultValue) {
+        Value value = value(section, key);
+        return value != null ? value.bool : defaultValue;
+    }
+
+    /**
+     * 整个段的所有键值，保持文件中的顺序；段不存在时返回空 Map
+     */
+    public Map<String, String> getSection(String section) {
+        Map<String, String> values = raw.get(section);
+        return values != null ? values : Map.of();
+    }
+
+    /**
+     * 两个快照中某个段的内容是否相同，用于监听器判断自己关心的部分是否变化
+     */
+    public boolean sameSection(ConfigSnapshot other, String section) {
+        return other != null && getSection(section).equals(other.getSection(section));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ConfigSnapshot other && raw.equals(other.raw));
+    }
+
+    @Override
+    public int hashCode() {
+        return raw.hashCode();
+    }
+}
@@ -1,25 +1,138 @@
 package com.lokins.sleepy.gui.utils;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.AppenderBase;
-import javafx.application.Platform;
-import java.util.function.Consumer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把日志推送到界面的 Logback Appender
+ * <p>
+ * append 只在调用方线程上固定消息文本、线程名与 MDC，然后放入有界队列，不调用订阅者，
+ * 写日志的线程（监控线程、OkHttp 回调等）不会被界面拖慢。由单独的后台线程取出事件并交给 {@link LogManager} 分发。
+ * <p>
+ * 队列接近满时按级别从低到高丢弃：剩余空间少于 discardingThreshold 时丢弃 DEBUG 及以下，
+ * 少于一半时再丢弃 INFO，队列满时丢弃所有新事件。丢弃数量会累计，并在队列恢复后以一条 WARN 提示。
+ * 可在 logback.xml 中通过 {@code <queueSize>} 与 {@code <discardingThreshold>} 配置。
+ * <p>
+ * 无界面模式（{@code -Dsleepy.headless=true}，由 {@code --headless} 设置）下没有人订阅，
+ * 不创建队列和后台线程，append 直接返回。
+ */
 public class GuiLogAppender extends AppenderBase<ILoggingEvent> {
-    private static Consumer<String> logConsumer;
+    private static final int DRAIN_BATCH = 256;
+
+    private static final AtomicLong droppedCount = new AtomicLong();
+
+    private int queueSize = 1024;
+    private int discardingThreshold = -1; // 未配置时为 queueSize 的 1/5
+
+    private BlockingQueue<ILoggingEvent> queue;
+    private Thread drainer;
+    // 上一次提示之后新增的丢弃数，仅由 append 累加、drainer 清零
+    private final AtomicLong unreportedDrops = new AtomicLong();
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setDiscardingThreshold(int discardingThreshold) {
+        this.discardingThreshold = discardingThreshold;
+    }
+
+    /**
+     * 因队列积压被丢弃的事件总数
+     */
+    public static long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void start() {
+        if (queueSize < 1) {
+            addError("Invalid queueSize " + queueSize);
+            return;
+        }
+        if (Boolean.getBoolean("sleepy.headless")) {
+            super.start();
+            return;
+        }
+        if (discardingThreshold < 0) {
+            discardingThreshold = queueSize / 5;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        drainer = Tasks.start("Sleepy-GuiLog-Drainer", this::drainLoop);
+        super.start();
+    }
 
-    public static void setLogConsumer(Consumer<String> consumer) {
-        logConsumer = consumer;
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+        if (drainer == null) return;
+        drainer.interrupt();
+        try {
+            drainer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
     protected void append(ILoggingEvent eventObject) {
-        String message = String.format("[%s] %s - %s\n",
-                eventObject.getLevel(),
-                eventObject.getLoggerName().substring(eventObject.getLoggerName().lastIndexOf(".") + 1),
-                eventObject.getFormattedMessage());
+        if (queue == null) return;
+        int remaining = queue.remainingCapacity();
+        if (remaining < discardingThreshold && isDiscardable(eventObject.getLevel(), remaining)) {
+            drop();
+            return;
+        }
+        // 消息参数可能是调用方之后还会修改的可变对象，线程名与 MDC 也只在当前线程上有意义，
+        // 入队前在调用方线程上固定下来（被丢弃的事件不做这一步）
+        eventObject.prepareForDeferredProcessing();
+        if (!queue.offer(eventObject)) {
+            drop();
+        }
+    }
+
+    private boolean isDiscardable(Level level, int remaining) {
+        if (level.toInt() <= Level.DEBUG_INT) return true;
+        return level.toInt() <= Level.INFO_INT && remaining < discardingThreshold / 2;
+    }
+
+    private void drop() {
+        droppedCount.incrementAndGet();
+        unreportedDrops.incrementAndGet();
+    }
+
+    private void drainLoop() {
+        List<ILoggingEvent> batch = new ArrayList<>(DRAIN_BATCH);
+        try {
+            while (isStarted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, DRAIN_BATCH - 1);
+                publish(batch);
+            }
+        } catch (InterruptedException e) {
+            // 停止时把剩余事件送完
+        }
+        queue.drainTo(batch);
+        publish(batch);
+    }
+
+    private void publish(List<ILoggingEvent> batch) {
+        for (ILoggingEvent event : batch) {
+            LogManager.broadcast(LogEntry.of(event));
+        }
+        batch.clear();
 
-        // 分发给所有已订阅的页面（如 LogView）
-        LogManager.broadcast(message);
+        long drops = unreportedDrops.getAndSet(0);
+        if (drops > 0) {
+            LogManager.broadcast(LogEntry.of(Level.WARN, GuiLogAppender.class.getName(),
+                    "界面日志积压，已丢弃 " + drops + " 条"));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package com.lokins.sleepy.gui.utils;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * 一条界面日志
+ * <p>
+ * 直接引用 Logback 的事件。消息已由 {@link GuiLogAppender} 入队前调用
+ * {@code prepareForDeferredProcessing()} 在写日志的线程上格式化（固定可变参数的取值），
+ * 这里只复用事件缓存的结果；带级别与 Logger 名的整行文本推迟到第一次被读取时拼接。
+ */
+public final class LogEntry {
+    private final Level level;
+    private final String loggerName;
+    private final long timestamp;
+    private final ILoggingEvent event; // 预先格式化的条目为 null
+    private String message;
+    // 多个订阅者线程可能同时读取，重复计算的结果相同，不需要加锁
+    private volatile String text;
+
+    private LogEntry(Level level, String loggerName, long timestamp, ILoggingEvent event, String message) {
+        this.level = level;
+        this.loggerName = loggerName;
+        this.timestamp = timestamp;
+        this.event = event;
+        this.message = message;
+    }
+
+    public static LogEntry of(ILoggingEvent event) {
+        return new LogEntry(event.getLevel(), event.getLoggerName(), event.getTimeStamp(), event, null);
+    }
+
+    public static LogEntry of(Level level, String loggerName, String message) {
+        return of(System.currentTimeMillis(), level, loggerName, message);
+    }
+
+    public static LogEntry of(long timestamp, Level level, String loggerName, String message) {
+        return new LogEntry(level, loggerName, timestamp, null, message);
+    }
+
+    /**
+     * 包装一行已经格式化好的文本（例如直接调用 {@link LogManager#broadcast(String)} 的场景）
+     */
+    public static LogEntry ofText(String text) {
+        LogEntry entry = new LogEntry(Level.INFO, "", System.currentTimeMillis(), null, text);
+        entry.text = text;
+        return entry;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    public String getShortLoggerName() {
+        return loggerName.substring(loggerName.lastIndexOf('.') + 1);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getMessage() {
+        String m = message;
+        if (m == null) {
+            // Logback 的事件会缓存格式化结果
+            m = event.getFormattedMessage();
+            message = m;
+        }
+        return m;
+    }
+
+    /**
+     * 界面显示的整行文本，格式为 {@code [LEVEL] Logger - message\n}
+     */
+    public String getText() {
+        String t = text;
+        if (t == null) {
+            t = "[" + level + "] " + getShortLoggerName() + " - " + getMessage() + "\n";
+            text = t;
+        }
+        return t;
+    }
+}
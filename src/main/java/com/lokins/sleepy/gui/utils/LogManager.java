@@ -1,32 +1,414 @@
 package com.lokins.sleepy.gui.utils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
+/**
+ * 全局日志分发：保存最近的日志历史，并推送给已订阅的页面
+ * <p>
+ * 订阅者收到的是结构化的 {@link LogEntry}，需要整行文本时再调用 {@link LogEntry#getText()}。
+ * <p>
+ * 历史保存在无锁环形缓冲区中，容量由 {@code -Dsleepy.log.history} 指定（默认 200）。
+ * 每个订阅者有自己的有界缓冲区和投递线程：broadcast 只把日志放入各订阅者的缓冲区，
+ * 回调在订阅者自己的线程上按批执行，处理慢的订阅者不会拖慢日志线程或其它订阅者。
+ * 缓冲区满时按订阅时选择的 {@link OverflowPolicy} 处理。
+ * <p>
+ * 订阅返回 {@link Subscription}：暂停期间不再投递（页面隐藏时），恢复后先补发暂停期间仍在历史中的部分；
+ * 不再需要时必须关闭，否则订阅者和它的线程会一直存在。
+ */
 public class LogManager {
-    private static final CopyOnWriteArrayList<Consumer<String>> subscribers = new CopyOnWriteArrayList<>();
-    // 新增：日志缓冲区，保存最近的 200 条日志
-    private static final CopyOnWriteArrayList<String> logCache = new CopyOnWriteArrayList<>();
-    private static final int MAX_CACHE_SIZE = 200;
+    private static final Logger logger = LoggerFactory.getLogger(LogManager.class);
+    // 读取历史时等待写入者写完一个已领取槽位的最多自旋次数
+    private static final int PENDING_SLOT_SPINS = 1000;
+    // 订阅者回调失败的日志最多每分钟一条：这条日志本身也会投递给失败的订阅者
+    private static final long FAILURE_LOG_INTERVAL_NANOS = 60_000_000_000L;
+    // 保存最近的日志，新订阅者会先收到这些历史
+    private static final int MAX_CACHE_SIZE = Math.max(1, Integer.getInteger("sleepy.log.history", 200));
+    private static final LogRingBuffer<LogEntry> history = new LogRingBuffer<>(MAX_CACHE_SIZE);
+    // 订阅只在打开页面时发生，写时复制的开销不在日志热路径上
+    private static final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // 因订阅者缓冲区溢出而丢弃的日志条数（所有订阅者合计）
+    private static final AtomicLong lostCount = new AtomicLong();
+    private static final AtomicInteger threadIndex = new AtomicInteger();
+
+    /**
+     * 缓冲区满时的处理方式
+     */
+    public enum OverflowPolicy {
+        /** 丢弃缓冲区中最旧的一条，保留最新的日志 */
+        DROP_OLDEST,
+        /** 丢弃新来的日志 */
+        DROP_NEWEST,
+        /** 让 broadcast 等待最多 blockTimeout，超时后丢弃新来的日志；会拖慢写日志的线程，只适合必须完整接收的订阅者 */
+        BLOCK
+    }
+
+    /**
+     * 订阅参数
+     * @param name 订阅者名称，用于线程名和诊断
+     * @param bufferSize 缓冲区容量（条）
+     * @param policy 缓冲区满时的处理方式
+     * @param blockTimeout BLOCK 策略下最多等待的时间
+     * @param replay 订阅时补发的历史条数，不超过历史容量
+     */
+    public record Options(String name, int bufferSize, OverflowPolicy policy, Duration blockTimeout, int replay) {
+        public Options {
+            if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive");
+            if (replay < 0) throw new IllegalArgumentException("replay must not be negative");
+        }
+
+        public static Options defaults(String name) {
+            return new Options(name, 4096, OverflowPolicy.DROP_OLDEST, Duration.ofMillis(100), MAX_CACHE_SIZE);
+        }
+
+        public Options withBufferSize(int bufferSize) {
+            return new Options(name, bufferSize, policy, blockTimeout, replay);
+        }
+
+        public Options withPolicy(OverflowPolicy policy) {
+            return new Options(name, bufferSize, policy, blockTimeout, replay);
+        }
+
+        public Options withBlockTimeout(Duration blockTimeout) {
+            return new Options(name, bufferSize, policy, blockTimeout, replay);
+        }
 
-    public static void subscribe(Consumer<String> consumer) {
-        subscribers.add(consumer);
-        // 关键：当新页面订阅时，先把缓存里的历史日志全发给它
-        for (String history : logCache) {
-            consumer.accept(history);
+        public Options withReplay(int replay) {
+            return new Options(name, bufferSize, policy, blockTimeout, replay);
         }
     }
 
+    /**
+     * 订阅句柄
+     */
+    public interface Subscription extends AutoCloseable {
+        /**
+         * 暂停投递，broadcast 不再向该订阅者的缓冲区写入
+         */
+        void pause();
+
+        /**
+         * 恢复投递，先把暂停期间仍在历史中的日志作为一批补发
+         */
+        void resume();
+
+        /**
+         * 取消订阅并结束投递线程，缓冲区中尚未投递的日志被丢弃；可重复调用
+         */
+        @Override
+        void close();
+
+        /**
+         * 已进入缓冲区、尚未投递的条数
+         */
+        int getLag();
+
+        /**
+         * 因缓冲区溢出而丢弃的条数
+         */
+        long getDropped();
+
+        /**
+         * 已投递给回调的条数（包括补发的历史）
+         */
+        long getDelivered();
+    }
+
+    /**
+     * 逐条接收日志，使用默认参数
+     */
+    public static Subscription subscribe(Consumer<LogEntry> consumer) {
+        return subscribe(Options.defaults("subscriber"), batch -> {
+            for (LogEntry entry : batch) {
+                consumer.accept(entry);
+            }
+        });
+    }
+
+    /**
+     * 按批接收日志：订阅时的历史作为第一批，之后每批是投递线程醒来时缓冲区中的全部日志
+     */
+    public static Subscription subscribe(Options options, Consumer<List<LogEntry>> consumer) {
+        Subscriber subscriber = new Subscriber(options, consumer);
+        // 先加入列表再确定补发的终点：终点之后的日志一定会经过 offer，之前的由补发覆盖
+        subscribers.add(subscriber);
+        subscriber.start();
+        return subscriber;
+    }
+
     public static void broadcast(String message) {
+        broadcast(LogEntry.ofText(message));
+    }
+
+    public static void broadcast(LogEntry entry) {
         // 保存到缓存
-        logCache.add(message);
-        if (logCache.size() > MAX_CACHE_SIZE) {
-            logCache.remove(0);
+        long sequence = history.publish(entry);
+
+        // 放入在线订阅者各自的缓冲区
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(entry, sequence);
+        }
+    }
+
+    public static long getLostCount() {
+        return lostCount.get();
+    }
+
+    public static int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 读取 [from, to) 范围内仍在历史中的日志
+     * <p>
+     * 序号已被领取但写入者还没写完的槽位先短暂等待（写入者只差一次 CAS），仍未写完时只跳过这一条，
+     * 不影响后面已经写好的日志
+     */
+    private static List<LogEntry> readHistory(long from, long to) {
+        List<LogEntry> entries = new ArrayList<>((int) Math.max(0, Math.min(to - from, history.capacity())));
+        LogRingBuffer<LogEntry>.Cursor cursor = history.cursor(Math.max(from, to - history.capacity()));
+        while (cursor.getPosition() < to) {
+            LogEntry entry = cursor.poll();
+            if (entry != null) {
+                entries.add(entry);
+                continue;
+            }
+            for (int i = 0; i < PENDING_SLOT_SPINS && !cursor.hasAvailable(); i++) {
+                Thread.onSpinWait();
+            }
+            if (!cursor.hasAvailable()) {
+                cursor.skip();
+            }
+        }
+        return entries;
+    }
+
+    private static final class Subscriber implements Subscription {
+        // 单批最多投递的条数，避免一次回调持有过大的列表
+        private static final int MAX_BATCH = 1024;
+
+        private final Options options;
+        private final Consumer<List<LogEntry>> consumer;
+        private final ArrayDeque<LogEntry> buffer;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+
+        // 以下字段由 lock 保护
+        // 序号小于它的日志由补发覆盖，offer 时忽略；start 之前忽略一切
+        private long startSequence = Long.MAX_VALUE;
+        private boolean paused;
+        // 暂停时的历史终点，恢复时从这里补发
+        private long pausedAt;
+        private List<LogEntry> replay;
+        private boolean closed;
+
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        // 以下两个字段只由投递线程访问
+        private long failures;
+        private long lastFailureLoggedAt;
+
+        Subscriber(Options options, Consumer<List<LogEntry>> consumer) {
+            this.options = options;
+            this.consumer = consumer;
+            this.buffer = new ArrayDeque<>(Math.min(options.bufferSize(), 1024));
+        }
+
+        void start() {
+            lock.lock();
+            try {
+                startSequence = history.head();
+                int replayCount = Math.min(options.replay(), history.capacity());
+                if (replayCount > 0) {
+                    replay = readHistory(startSequence - replayCount, startSequence);
+                }
+            } finally {
+                lock.unlock();
+            }
+            // 投递线程大部分时间在等待新日志，虚拟线程不占用平台线程
+            Tasks.start("Sleepy-LogSubscriber-" + options.name() + "-" + threadIndex.incrementAndGet(),
+                    this::deliverLoop);
+        }
+
+        void offer(LogEntry entry, long sequence) {
+            lock.lock();
+            try {
+                if (closed || sequence < startSequence || (paused && sequence >= pausedAt)) {
+                    return;
+                }
+                if (buffer.size() >= options.bufferSize()) {
+                    switch (options.policy()) {
+                        case DROP_OLDEST -> {
+                            buffer.pollFirst();
+                            drop();
+                        }
+                        case DROP_NEWEST -> {
+                            drop();
+                            return;
+                        }
+                        case BLOCK -> {
+                            if (!awaitSpace()) {
+                                drop();
+                                return;
+                            }
+                        }
+                    }
+                }
+                buffer.addLast(entry);
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean awaitSpace() {
+            long nanos = options.blockTimeout().toNanos();
+            try {
+                while (buffer.size() >= options.bufferSize() && !closed) {
+                    if (nanos <= 0) return false;
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return !closed;
+        }
+
+        private void drop() {
+            dropped.incrementAndGet();
+            lostCount.incrementAndGet();
+        }
+
+        @Override
+        public void pause() {
+            lock.lock();
+            try {
+                if (paused || closed) return;
+                paused = true;
+                pausedAt = history.head();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void resume() {
+            lock.lock();
+            try {
+                if (!paused || closed) return;
+                long head = history.head();
+                List<LogEntry> missed = readHistory(pausedAt, head);
+                if (!missed.isEmpty()) {
+                    if (replay == null) {
+                        replay = missed;
+                    } else {
+                        replay.addAll(missed);
+                    }
+                }
+                startSequence = head;
+                paused = false;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) return;
+                closed = true;
+                buffer.clear();
+                replay = null;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            subscribers.remove(this);
+        }
+
+        @Override
+        public int getLag() {
+            lock.lock();
+            try {
+                return buffer.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        @Override
+        public long getDelivered() {
+            return delivered.get();
+        }
+
+        /**
+         * 记录回调失败：这条日志会再投递给同一个订阅者，如果它每次都失败就会形成循环，
+         * 因此第一次失败带堆栈记录，之后最多每分钟汇总一条
+         */
+        private void onFailure(RuntimeException e) {
+            failures++;
+            long now = System.nanoTime();
+            if (failures == 1) {
+                lastFailureLoggedAt = now;
+                logger.error("Log subscriber {} failed", options.name(), e);
+            } else if (now - lastFailureLoggedAt >= FAILURE_LOG_INTERVAL_NANOS) {
+                lastFailureLoggedAt = now;
+                logger.error("Log subscriber {} failed {} times, last error: {}", options.name(), failures, e.toString());
+            }
         }
 
-        // 分发给当前在线的订阅者
-        for (Consumer<String> subscriber : subscribers) {
-            subscriber.accept(message);
+        private void deliverLoop() {
+            while (true) {
+                List<LogEntry> batch;
+                lock.lock();
+                try {
+                    while (!closed && replay == null && buffer.isEmpty()) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (closed) return;
+                    if (replay != null) {
+                        batch = replay;
+                        replay = null;
+                    } else {
+                        batch = new ArrayList<>(Math.min(buffer.size(), MAX_BATCH));
+                        while (batch.size() < MAX_BATCH && !buffer.isEmpty()) {
+                            batch.add(buffer.pollFirst());
+                        }
+                        notFull.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (batch.isEmpty()) continue;
+                try {
+                    consumer.accept(batch);
+                } catch (RuntimeException e) {
+                    onFailure(e);
+                }
+                delivered.addAndGet(batch.size());
+            }
         }
     }
-}
\ No newline at end of file
+}
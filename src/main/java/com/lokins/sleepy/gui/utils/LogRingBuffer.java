@@ -0,0 +1,145 @@
+package com.lokins.sleepy.gui.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 固定容量的无锁环形缓冲区：多个线程并发写入，每个读者持有自己的游标
+ * <p>
+ * 写入方通过一次原子自增领取序号（槽位 = 序号 & mask），再把带序号的槽位写入数组，
+ * 不复制数组也不加锁。读者按序号读取，槽位中的序号小于期望值表示尚未写入完成，
+ * 大于期望值表示读者落后超过一圈、旧消息已被覆盖，此时跳到仍可读的最早位置并计入丢失数。
+ */
+public final class LogRingBuffer<T> {
+
+    private record Slot<T>(long sequence, T value) {
+    }
+
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final int mask;
+    // 下一个待领取的序号，也就是已领取的总数
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * @param minCapacity 最小容量，实际容量向上取整为 2 的幂
+     */
+    public LogRingBuffer(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 已领取的序号总数，下一条消息的序号
+     */
+    public long head() {
+        return next.get();
+    }
+
+    /**
+     * 写入一条消息
+     * @return 分配到的序号
+     */
+    public long publish(T value) {
+        long sequence = next.getAndIncrement();
+        int index = (int) (sequence & mask);
+        Slot<T> slot = new Slot<>(sequence, value);
+        while (true) {
+            Slot<T> current = slots.get(index);
+            // 写入者在领取序号后被挂起超过一圈时，槽位已属于更新的消息，放弃旧消息
+            if (current != null && current.sequence > sequence) {
+                return sequence;
+            }
+            if (slots.compareAndSet(index, current, slot)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * 创建一个从指定序号开始读取的游标，早于缓冲区可读范围的部分会被跳过
+     */
+    public Cursor cursor(long fromSequence) {
+        return new Cursor(Math.max(0, fromSequence));
+    }
+
+    /**
+     * 读者游标，同一时刻只能由一个线程使用
+     */
+    public final class Cursor {
+        private long position;
+        private long lost;
+
+        private Cursor(long position) {
+            this.position = position;
+        }
+
+        /**
+         * 读取下一条消息
+         * @return 下一条消息；已读到最新或下一条尚未写入完成时返回 null
+         */
+        public T poll() {
+            while (true) {
+                long head = next.get();
+                if (position >= head) return null;
+
+                long oldest = head - capacity();
+                if (position < oldest) {
+                    lost += oldest - position;
+                    position = oldest;
+                }
+
+                Slot<T> slot = slots.get((int) (position & mask));
+                if (slot == null || slot.sequence < position) {
+                    // 序号已被领取但写入者还没有写完，保持顺序，等待下一次读取
+                    return null;
+                }
+                if (slot.sequence > position) {
+                    // 读取期间被覆盖，重新按最新的 head 计算可读范围
+                    lost++;
+                    position++;
+                    continue;
+                }
+                position++;
+                return slot.value;
+            }
+        }
+
+        /**
+         * 下一次 poll 是否可能返回消息（包括需要跳过已覆盖消息的情况）
+         */
+        public boolean hasAvailable() {
+            if (position >= next.get()) return false;
+            Slot<T> slot = slots.get((int) (position & mask));
+            return slot != null && slot.sequence >= position;
+        }
+
+        /**
+         * 跳过下一条（例如写入者迟迟没有写完的槽位），计入丢失数
+         */
+        public void skip() {
+            if (position < next.get()) {
+                position++;
+                lost++;
+            }
+        }
+
+        /**
+         * 下一次 poll 期望读取的序号
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * 因落后超过缓冲区容量而被跳过的消息数
+         */
+        public long getLost() {
+            return lost;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.lokins.sleepy.gui.utils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 具名的结构化任务作用域：一个多步骤任务（测试连接、下载运行时等）的所有子任务都在作用域内派生，
+ * 在作用域关闭前全部结束
+ * <p>
+ * 语义与 JDK 的 {@code StructuredTaskScope.ShutdownOnFailure} 相同：任一子任务失败即取消整个作用域。
+ * 该 API 在 Java 21 中仍是预览特性，所以这里自己实现一个最小版本：
+ * <pre>{@code
+ * try (TaskScope scope = TaskScope.open("test-connection")) {
+ *     TaskScope.Subtask<Boolean> ping = scope.fork("ping", client::ping);
+ *     scope.joinUntil(deadline);
+ *     scope.throwIfFailed();
+ *     return ping.get();
+ * }
+ * }</pre>
+ * 取消会中断所有子任务，并执行通过 {@link #onCancel(Runnable)} 登记的回调，例如取消进行中的 HTTP 请求，
+ * 使阻塞在网络读写中的子任务立即返回。在子任务中打开的作用域是它的子作用域，随父作用域一起取消。
+ * 子任务运行在虚拟线程上，线程名为 {@code 作用域名/子任务名}。
+ */
+public final class TaskScope implements AutoCloseable {
+    private static final ThreadLocal<TaskScope> CURRENT = new ThreadLocal<>();
+
+    public enum State {
+        RUNNING, SUCCESS, FAILED, CANCELLED
+    }
+
+    /**
+     * 取消回调的登记，关闭即撤销；可重复关闭
+     */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Registration NO_REGISTRATION = () -> {
+    };
+
+    /**
+     * 派生出的子任务
+     */
+    public static final class Subtask<T> {
+        private final String name;
+        private volatile State state = State.RUNNING;
+        private volatile T result;
+        private volatile Throwable exception;
+
+        private Subtask(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public State state() {
+            return state;
+        }
+
+        /**
+         * @throws IllegalStateException 子任务没有成功完成
+         */
+        public T get() {
+            if (state != State.SUCCESS) {
+                throw new IllegalStateException("Subtask " + name + " is " + state);
+            }
+            return result;
+        }
+
+        public Throwable exception() {
+            return exception;
+        }
+    }
+
+    private final String name;
+    private final Registration parentRegistration;
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final Set<Runnable> cancelHooks = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition idle = lock.newCondition();
+    private int active; // 由 lock 保护
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private volatile boolean closed;
+    private volatile Throwable firstFailure;
+
+    private TaskScope(String name, TaskScope parent) {
+        this.name = parent == null ? name : parent.name + "/" + name;
+        this.parentRegistration = parent == null ? NO_REGISTRATION : parent.register(this::cancel);
+    }
+
+    /**
+     * 打开一个作用域；在另一个作用域的子任务中调用时，成为其子作用域
+     */
+    public static TaskScope open(String name) {
+        return new TaskScope(name, CURRENT.get());
+    }
+
+    /**
+     * 当前线程所属的作用域，不在任何子任务中时返回 null
+     */
+    public static TaskScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在当前线程所属的作用域上登记取消回调；不在作用域中时什么也不做
+     */
+    public static Registration onCancel(Runnable hook) {
+        TaskScope scope = CURRENT.get();
+        return scope == null ? NO_REGISTRATION : scope.register(hook);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * 在新的虚拟线程中执行子任务；作用域已取消时子任务直接标记为 CANCELLED，不会执行
+     */
+    public <T> Subtask<T> fork(String taskName, Callable<T> task) {
+        if (closed) throw new IllegalStateException("Task scope " + name + " is closed");
+        Subtask<T> subtask = new Subtask<>(taskName);
+        if (cancelled.get()) {
+            subtask.state = State.CANCELLED;
+            return subtask;
+        }
+
+        lock.lock();
+        try {
+            active++;
+        } finally {
+            lock.unlock();
+        }
+        Thread thread = Thread.ofVirtual().name(name + "/" + taskName).unstarted(() -> run(subtask, task));
+        threads.add(thread);
+        thread.start();
+        return subtask;
+    }
+
+    private <T> void run(Subtask<T> subtask, Callable<T> task) {
+        CURRENT.set(this);
+        try {
+            if (cancelled.get()) {
+                subtask.state = State.CANCELLED;
+                return;
+            }
+            subtask.result = task.call();
+            subtask.state = State.SUCCESS;
+        } catch (Throwable e) {
+            if (cancelled.get()) {
+                // 取消导致的中断或 IOException("Canceled") 不算失败
+                subtask.state = State.CANCELLED;
+            } else {
+                subtask.exception = e;
+                subtask.state = State.FAILED;
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+                cancel();
+            }
+        } finally {
+            CURRENT.remove();
+            threads.remove(Thread.currentThread());
+            lock.lock();
+            try {
+                if (--active == 0) idle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 等待所有子任务结束
+     */
+    public void join() throws InterruptedException {
+        lock.lock();
+        try {
+            while (active > 0) idle.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待所有子任务结束，到期时取消作用域并抛出 TimeoutException
+     */
+    public void joinUntil(Instant deadline) throws InterruptedException, TimeoutException {
+        lock.lock();
+        try {
+            while (active > 0) {
+                long nanos = Duration.between(Instant.now(), deadline).toNanos();
+                if (nanos <= 0) {
+                    lock.unlock();
+                    try {
+                        cancel();
+                    } finally {
+                        lock.lock();
+                    }
+                    throw new TimeoutException("Task scope " + name + " timed out");
+                }
+                idle.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 有子任务失败时抛出第一个失败的原因
+     */
+    public void throwIfFailed() throws ExecutionException {
+        Throwable failure = firstFailure;
+        if (failure != null) throw new ExecutionException(failure);
+    }
+
+    /**
+     * 取消作用域：执行取消回调（如取消 HTTP 请求）并中断所有子任务；可重复调用
+     */
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) return;
+        // 逐个移除后执行：与 register 并发时，谁先移除成功谁执行，回调恰好执行一次
+        for (Runnable hook : cancelHooks) {
+            if (!cancelHooks.remove(hook)) continue;
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                // 取消回调失败不影响其它回调
+            }
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 登记取消回调；作用域已取消时立即执行
+     */
+    public Registration register(Runnable hook) {
+        // 每次登记单独包装，同一个回调登记两次也能分别撤销
+        Runnable entry = hook::run;
+        cancelHooks.add(entry);
+        if (cancelled.get() && cancelHooks.remove(entry)) {
+            hook.run();
+            return NO_REGISTRATION;
+        }
+        return () -> cancelHooks.remove(entry);
+    }
+
+    /**
+     * 取消仍在运行的子任务并等待它们全部结束
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            if (active > 0) {
+                lock.unlock();
+                try {
+                    cancel();
+                } finally {
+                    lock.lock();
+                }
+            }
+            while (active > 0) {
+                try {
+                    idle.await(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        parentRegistration.close();
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
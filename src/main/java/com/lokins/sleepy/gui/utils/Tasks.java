@@ -0,0 +1,73 @@
+package com.lokins.sleepy.gui.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 统一的任务执行层：程序中的后台任务都运行在 Java 21 的虚拟线程上
+ * <p>
+ * 虚拟线程阻塞（sleep、锁、Socket I/O、队列等待）时会让出承载线程，空闲的后台循环几乎不占用平台线程；
+ * 多步骤、需要整体取消的任务使用 {@link TaskScope}。
+ * <p>
+ * 仍然使用平台线程的地方：Windows 消息循环（{@code SetWinEventHook} 的回调与线程绑定，且长时间阻塞在本地调用中）、
+ * 关闭钩子、JavaFX / AWT 自己的线程，以及 OkHttp 内部的连接池清理线程。
+ * 虚拟线程都是守护线程，不能用它来维持 JVM 存活。
+ */
+public final class Tasks {
+
+    private Tasks() {
+    }
+
+    /**
+     * 在新的虚拟线程中执行任务
+     */
+    public static Thread start(String name, Runnable task) {
+        return Thread.ofVirtual().name(name).start(task);
+    }
+
+    /**
+     * 创建虚拟线程的工厂，线程名为 {@code name-0}、{@code name-1}…
+     */
+    public static ThreadFactory factory(String name) {
+        return Thread.ofVirtual().name(name + "-", 0).factory();
+    }
+
+    /**
+     * 每个任务一个虚拟线程的执行器，不限并发数，需要限流时由调用方控制
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(factory(name));
+    }
+
+    /**
+     * 任务串行执行的执行器（例如同一时刻只允许一个检索），工作线程是虚拟线程
+     */
+    public static ExecutorService newSerialExecutor(String name) {
+        return Executors.newSingleThreadExecutor(factory(name));
+    }
+
+    /**
+     * 单线程的定时执行器，工作线程是虚拟线程：等待下一次任务时不占用平台线程
+     */
+    public static ScheduledExecutorService newScheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(factory(name));
+    }
+
+    /**
+     * 当前的平台线程数与内存占用，例如 {@code platformThreads=14 (peak 19), heap=12.3/32.0 MB, nonHeap=28.1 MB}；
+     * 虚拟线程不计入平台线程数
+     */
+    public static String describeRuntime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Runtime runtime = Runtime.getRuntime();
+        double heapUsed = (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0;
+        double heapCommitted = runtime.totalMemory() / 1048576.0;
+        double nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getUsed() / 1048576.0;
+        return String.format("platformThreads=%d (peak %d), heap=%.1f/%.1f MB, nonHeap=%.1f MB",
+                threads.getThreadCount(), threads.getPeakThreadCount(), heapUsed, heapCommitted, nonHeap);
+    }
+}
@@ -0,0 +1,57 @@
+package com.lokins.sleepy.gui.utils;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+import java.util.Arrays;
+
+/**
+ * 窗口标题采样器：复用一块本地缓冲区接收 UTF-16 标题，
+ * 与上一次采样的原始字符相同时直接返回上一次的 String，不产生新的分配
+ * <p>
+ * 不是线程安全的，每个采样线程使用自己的实例
+ */
+public final class TitleSampler {
+    private final Memory nativeBuffer;
+    private char[] scratch;
+    private char[] lastChars;
+    private int lastLength = 0;
+    private String lastTitle = "";
+
+    /**
+     * @param maxChars 缓冲区最多容纳的字符数
+     */
+    public TitleSampler(int maxChars) {
+        this.nativeBuffer = new Memory(maxChars * 2L);
+        this.scratch = new char[maxChars];
+        this.lastChars = new char[maxChars];
+    }
+
+    /**
+     * 供本地 API 写入标题的缓冲区
+     */
+    public Pointer buffer() {
+        return nativeBuffer;
+    }
+
+    /**
+     * 读取缓冲区中前 length 个字符
+     * @return 标题；与上一次相同时返回同一个 String 实例
+     */
+    public String sample(int length) {
+        if (length <= 0) return "";
+
+        // 先比较原始字符，相同则不创建 String
+        nativeBuffer.read(0, scratch, 0, length);
+        if (length == lastLength && Arrays.equals(scratch, 0, length, lastChars, 0, length)) {
+            return lastTitle;
+        }
+
+        char[] previous = lastChars;
+        lastChars = scratch;
+        scratch = previous;
+        lastLength = length;
+        lastTitle = new String(lastChars, 0, length);
+        return lastTitle;
+    }
+}
@@ -1,19 +1,38 @@
 package com.lokins.sleepy.gui.utils;
 
 import com.sun.jna.Native;
+import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.User32;
 import com.sun.jna.platform.win32.WinDef;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class Win32WindowUtil {
-    private static final Logger logger = LoggerFactory.getLogger(Win32WindowUtil.class);
+    private static final int MAX_TITLE_CHARS = 1024;
+
+    // 每个线程一份采样器：复用本地缓冲区，标题没有变化时直接返回上一次的 String
+    private static final ThreadLocal<TitleSampler> SAMPLER =
+            ThreadLocal.withInitial(() -> new TitleSampler(MAX_TITLE_CHARS));
 
     /**
      * 获取当前系统最前台活跃窗口的标题
+     * <p>
+     * 标题与同一线程上一次采样相同时返回同一个 String 实例，不产生新的分配
      * @return 窗口标题，如果获取失败则返回空字符串
      */
     public static String getActiveWindowTitle() {
+        if (Native.POINTER_SIZE != 8) {
+            return getActiveWindowTitleLegacy();
+        }
+        long hwnd = User32Direct.GetForegroundWindow();
+        if (hwnd == 0) return "";
+
+        TitleSampler sampler = SAMPLER.get();
+        return sampler.sample(User32Direct.GetWindowTextW(hwnd, sampler.buffer(), MAX_TITLE_CHARS));
+    }
+
+    /**
+     * 32 位 JVM 下的兜底实现：每次都分配缓冲区和新的 String
+     */
+    private static String getActiveWindowTitleLegacy() {
         // 1. 获取前台窗口句柄 (Handle)
         WinDef.HWND hwnd = User32.INSTANCE.GetForegroundWindow();
         if (hwnd == null) {
@@ -21,10 +40,10 @@ public class Win32WindowUtil {
         }
 
         // 2. 准备一个缓冲区来接收标题文字
-        char[] buffer = new char[1024 * 2]; // 支持长标题
+        char[] buffer = new char[MAX_TITLE_CHARS];
 
         // 3. 调用 User32 接口获取标题
-        int length = User32.INSTANCE.GetWindowText(hwnd, buffer, 1024);
+        int length = User32.INSTANCE.GetWindowText(hwnd, buffer, MAX_TITLE_CHARS);
 
         if (length > 0) {
             return Native.toString(buffer);
@@ -32,4 +51,18 @@ public class Win32WindowUtil {
 
         return "";
     }
-}
\ No newline at end of file
+
+    /**
+     * User32 的 JNA 直接映射：不经过接口代理（每次调用都会分配参数数组），
+     * HWND 以 64 位整数传递，避免每次采样都分配 HWND 对象
+     */
+    private static final class User32Direct {
+        static {
+            Native.register("user32");
+        }
+
+        static native long GetForegroundWindow();
+
+        static native int GetWindowTextW(long hWnd, Pointer lpString, int nMaxCount);
+    }
+}
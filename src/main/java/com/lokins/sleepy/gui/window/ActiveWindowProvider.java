@@ -0,0 +1,32 @@
+package com.lokins.sleepy.gui.window;
+
+/**
+ * 获取当前前台窗口标题的平台实现（SPI）
+ * <p>
+ * 实现类通过 {@link java.util.ServiceLoader} 发现，由 {@link ActiveWindowProviders} 在启动时选择一次并缓存。
+ * 实现需要提供 public 无参构造函数，并在 META-INF/services 中注册。
+ */
+public interface ActiveWindowProvider {
+
+    /**
+     * 唯一名称，可通过 [settings] window_provider 或 -Dsleepy.window.provider 指定
+     */
+    String name();
+
+    /**
+     * 当前平台是否可用；只在启动选择时调用一次，可以做较重的探测
+     */
+    boolean isSupported();
+
+    /**
+     * 自动选择时的优先级，数值越大越优先
+     */
+    default int priority() {
+        return 0;
+    }
+
+    /**
+     * 当前前台窗口标题；处于监控热路径上，失败时返回空字符串，不允许抛出异常
+     */
+    String getActiveWindowTitle();
+}
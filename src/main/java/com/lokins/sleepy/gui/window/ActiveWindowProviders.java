@@ -0,0 +1,92 @@
+package com.lokins.sleepy.gui.window;
+
+import com.lokins.sleepy.gui.utils.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 选择并缓存当前平台的 {@link ActiveWindowProvider}
+ * <p>
+ * 优先使用 -Dsleepy.window.provider 或 [settings] window_provider 指定的实现，
+ * 否则在所有 isSupported() 的实现中取优先级最高的一个。选择只在首次调用时进行一次，
+ * 之后的热路径不再做任何平台探测。
+ */
+public final class ActiveWindowProviders {
+    private static final Logger logger = LoggerFactory.getLogger(ActiveWindowProviders.class);
+
+    private static volatile ActiveWindowProvider selected;
+
+    private ActiveWindowProviders() {
+    }
+
+    public static ActiveWindowProvider get() {
+        ActiveWindowProvider provider = selected;
+        if (provider == null) {
+            synchronized (ActiveWindowProviders.class) {
+                provider = selected;
+                if (provider == null) {
+                    provider = select();
+                    selected = provider;
+                }
+            }
+        }
+        return provider;
+    }
+
+    private static ActiveWindowProvider select() {
+        List<ActiveWindowProvider> providers = new ArrayList<>();
+        for (ActiveWindowProvider p : ServiceLoader.load(ActiveWindowProvider.class, ActiveWindowProvider.class.getClassLoader())) {
+            providers.add(p);
+        }
+
+        String wanted = System.getProperty("sleepy.window.provider");
+        if (wanted == null) {
+            try {
+                wanted = ConfigManager.getInstance().get("settings", "window_provider", "auto");
+            } catch (Exception e) {
+                wanted = "auto";
+            }
+        }
+
+        if (!"auto".equalsIgnoreCase(wanted)) {
+            for (ActiveWindowProvider p : providers) {
+                if (p.name().equalsIgnoreCase(wanted)) {
+                    logger.info("使用指定的窗口检测实现: {}", p.name());
+                    return p;
+                }
+            }
+            logger.warn("未找到窗口检测实现 {}，改为自动选择", wanted);
+        }
+
+        providers.sort(Comparator.comparingInt(ActiveWindowProvider::priority).reversed());
+        for (ActiveWindowProvider p : providers) {
+            if (p.isSupported()) {
+                logger.info("自动选择窗口检测实现: {}", p.name());
+                return p;
+            }
+        }
+
+        logger.warn("当前平台没有可用的窗口检测实现，将无法上报前台应用");
+        return new ActiveWindowProvider() {
+            @Override
+            public String name() {
+                return "none";
+            }
+
+            @Override
+            public boolean isSupported() {
+                return true;
+            }
+
+            @Override
+            public String getActiveWindowTitle() {
+                return "";
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package com.lokins.sleepy.gui.window;
+
+import com.lokins.sleepy.gui.utils.Win32WindowUtil;
+import com.sun.jna.platform.win32.User32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Windows 实现：基于 JNA User32 的 GetForegroundWindow / GetWindowText
+ */
+public class Win32WindowProvider implements ActiveWindowProvider {
+    private static final Logger logger = LoggerFactory.getLogger(Win32WindowProvider.class);
+
+    @Override
+    public String name() {
+        return "win32";
+    }
+
+    @Override
+    public boolean isSupported() {
+        if (!System.getProperty("os.name").toLowerCase().contains("win")) return false;
+        try {
+            User32.INSTANCE.GetForegroundWindow();
+            return true;
+        } catch (Throwable e) {
+            logger.warn("User32 不可用: {}", e.toString());
+            return false;
+        }
+    }
+
+    @Override
+    public int priority() {
+        return 10;
+    }
+
+    @Override
+    public String getActiveWindowTitle() {
+        try {
+            return Win32WindowUtil.getActiveWindowTitle();
+        } catch (Throwable e) {
+            return "";
+        }
+    }
+}
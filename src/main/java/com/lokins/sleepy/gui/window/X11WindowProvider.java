@@ -0,0 +1,173 @@
+package com.lokins.sleepy.gui.window;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.unix.X11;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.NativeLongByReference;
+import com.sun.jna.ptr.PointerByReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Linux / X11 实现：按 EWMH 规范读取根窗口的 _NET_ACTIVE_WINDOW，再读取该窗口的 _NET_WM_NAME
+ * <p>
+ * 直接通过 JNA 调用 Xlib，不 fork xprop / xdotool 子进程。Display 连接在首次使用时打开并复用，
+ * Xlib 不是线程安全的，所以所有调用都串行化。
+ * <p>
+ * Xlib 的错误处理函数是进程级的，只在本类的调用期间替换，结束后恢复原来的处理函数，
+ * 不影响 GTK 等同一进程中的其它 Xlib 用户。
+ */
+public class X11WindowProvider implements ActiveWindowProvider {
+    private static final Logger logger = LoggerFactory.getLogger(X11WindowProvider.class);
+
+    private static final int SUCCESS = 0;
+    private static final X11.Atom ANY_PROPERTY_TYPE = new X11.Atom(0);
+    // 标题最多读取 1024 个 32 位单元（4KB），足够任何窗口标题
+    private static final NativeLong MAX_LENGTH = new NativeLong(1024);
+
+    private X11 x11;
+    private X11.Display display;
+    private X11.Window root;
+    private X11.Atom netActiveWindow;
+    private X11.Atom netWmName;
+    private X11.Atom utf8String;
+
+    // Xlib 默认的错误处理会直接结束进程（例如读取一个刚关闭的窗口时的 BadWindow），调用期间替换掉；必须持有强引用
+    private final X11.XErrorHandler errorHandler = new X11.XErrorHandler() {
+        @Override
+        public int apply(X11.Display dpy, X11.XErrorEvent event) {
+            return 0;
+        }
+    };
+
+    @Override
+    public String name() {
+        return "x11";
+    }
+
+    @Override
+    public synchronized boolean isSupported() {
+        String os = System.getProperty("os.name").toLowerCase();
+        if (os.contains("win") || os.contains("mac")) return false;
+        if (System.getenv("DISPLAY") == null) return false;
+
+        try {
+            x11 = X11.INSTANCE;
+            display = x11.XOpenDisplay(null);
+            if (display == null) return false;
+
+            boolean supported = withErrorHandler(() -> {
+                root = x11.XDefaultRootWindow(display);
+                netActiveWindow = x11.XInternAtom(display, "_NET_ACTIVE_WINDOW", false);
+                netWmName = x11.XInternAtom(display, "_NET_WM_NAME", false);
+                utf8String = x11.XInternAtom(display, "UTF8_STRING", false);
+                // 窗口管理器不支持 EWMH 时读不到 _NET_ACTIVE_WINDOW
+                return readActiveWindow() != null || hasProperty(root, netActiveWindow);
+            });
+            if (!supported) {
+                logger.warn("窗口管理器不支持 _NET_ACTIVE_WINDOW");
+                x11.XCloseDisplay(display);
+                display = null;
+                return false;
+            }
+            return true;
+        } catch (Throwable e) {
+            logger.warn("X11 不可用: {}", e.toString());
+            display = null;
+            return false;
+        }
+    }
+
+    @Override
+    public int priority() {
+        return 10;
+    }
+
+    @Override
+    public synchronized String getActiveWindowTitle() {
+        if (display == null) return "";
+        try {
+            return withErrorHandler(() -> {
+                X11.Window window = readActiveWindow();
+                if (window == null) return "";
+
+                String title = readString(window, netWmName, utf8String, StandardCharsets.UTF_8);
+                if (title == null) {
+                    // 不支持 EWMH 标题的老程序只设置了 WM_NAME
+                    title = readString(window, X11.XA_WM_NAME, X11.XA_STRING, StandardCharsets.ISO_8859_1);
+                }
+                return title != null ? title : "";
+            });
+        } catch (Throwable e) {
+            return "";
+        }
+    }
+
+    /**
+     * 替换错误处理函数后执行 action；返回前先 XSync，让本次请求产生的错误在替换期间处理完，再恢复原来的处理函数
+     */
+    private <T> T withErrorHandler(Supplier<T> action) {
+        X11.XErrorHandler previous = x11.XSetErrorHandler(errorHandler);
+        try {
+            return action.get();
+        } finally {
+            x11.XSync(display, false);
+            x11.XSetErrorHandler(previous);
+        }
+    }
+
+    private X11.Window readActiveWindow() {
+        Pointer data = getProperty(root, netActiveWindow, X11.XA_WINDOW, new NativeLongByReference());
+        if (data == null) return null;
+        try {
+            long id = data.getNativeLong(0).longValue();
+            return id == 0 ? null : new X11.Window(id);
+        } finally {
+            x11.XFree(data);
+        }
+    }
+
+    private String readString(X11.Window window, X11.Atom property, X11.Atom type, Charset charset) {
+        NativeLongByReference items = new NativeLongByReference();
+        Pointer data = getProperty(window, property, type, items);
+        if (data == null) return null;
+        try {
+            int length = items.getValue().intValue();
+            return new String(data.getByteArray(0, length), charset);
+        } finally {
+            x11.XFree(data);
+        }
+    }
+
+    private boolean hasProperty(X11.Window window, X11.Atom property) {
+        Pointer data = getProperty(window, property, ANY_PROPERTY_TYPE, new NativeLongByReference());
+        if (data == null) return false;
+        x11.XFree(data);
+        return true;
+    }
+
+    /**
+     * @return 属性数据（调用方负责 XFree），属性不存在或类型不符时返回 null
+     */
+    private Pointer getProperty(X11.Window window, X11.Atom property, X11.Atom type, NativeLongByReference items) {
+        X11.AtomByReference actualType = new X11.AtomByReference();
+        IntByReference actualFormat = new IntByReference();
+        NativeLongByReference bytesAfter = new NativeLongByReference();
+        PointerByReference prop = new PointerByReference();
+
+        int status = x11.XGetWindowProperty(display, window, property, new NativeLong(0), MAX_LENGTH,
+                false, type, actualType, actualFormat, items, bytesAfter, prop);
+        Pointer data = prop.getValue();
+        if (status != SUCCESS || data == null) return null;
+        if (items.getValue().longValue() == 0) {
+            x11.XFree(data);
+            return null;
+        }
+        return data;
+    }
+}
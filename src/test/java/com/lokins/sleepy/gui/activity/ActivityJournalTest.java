@@ -0,0 +1,171 @@
+package com.lokins.sleepy.gui.activity;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivityJournalTest {
+    // 固定时区（没有夏令时），测试结果与运行环境无关
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final Duration MAX_GAP = Duration.ofMinutes(5);
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void splitsRecordAtMidnight() throws IOException {
+        try (ActivityJournal journal = open(0)) {
+            journal.switchTo("Code", at(DAY, "23:59:00"));
+            journal.touch(at(DAY, "23:59:50"));
+            journal.touch(at(DAY.plusDays(1), "00:00:30"));
+            journal.end(at(DAY.plusDays(1), "00:00:30"));
+
+            assertEquals(List.of(record("Code", DAY, "23:59:00", 60)), journal.records(DAY));
+            assertEquals(List.of(record("Code", DAY.plusDays(1), "00:00:00", 30)), journal.records(DAY.plusDays(1)));
+            assertEquals(Map.of("Code", Duration.ofSeconds(90)), journal.totals(DAY, DAY.plusDays(1)));
+        }
+    }
+
+    @Test
+    void endsRecordAtLastTouchWhenGapExceedsMax() throws IOException {
+        try (ActivityJournal journal = open(0)) {
+            journal.switchTo("Code", at(DAY, "10:00:00"));
+            journal.touch(at(DAY, "10:01:00"));
+            // 系统休眠了半小时：休眠期间不计入，醒来后为同一应用重新开始计时
+            journal.touch(at(DAY, "10:30:00"));
+            journal.touch(at(DAY, "10:31:00"));
+            // 再次超过 maxGap 后切换：上一条同样在最后一次 touch 处结束
+            journal.switchTo("Chrome", at(DAY, "10:40:00"));
+            journal.end(at(DAY, "10:40:20"));
+
+            assertEquals(List.of(
+                    record("Code", DAY, "10:00:00", 60),
+                    record("Code", DAY, "10:30:00", 60),
+                    record("Chrome", DAY, "10:40:00", 20)), journal.records(DAY));
+        }
+    }
+
+    @Test
+    void replacesZeroLengthRecordWithinSameSecond() throws IOException {
+        try (ActivityJournal journal = open(0)) {
+            journal.switchTo("Code", at(DAY, "10:00:00"));
+            journal.switchTo("Chrome", at(DAY, "10:00:00").plusMillis(400));
+            journal.end(at(DAY, "10:00:10").plusMillis(400));
+
+            assertEquals(List.of(record("Chrome", DAY, "10:00:00", 10)), journal.records(DAY));
+        }
+    }
+
+    @Test
+    void deletesSegmentsOlderThanRetention() throws IOException {
+        try (ActivityJournal journal = open(3)) {
+            // 打开时按今天清理过，这里准备好旧文件后由跨天触发清理
+            for (String name : List.of("2024-03-07.seg", "2024-03-08.seg", "2024-03-09.seg", "notes.seg")) {
+                Files.createFile(dir.resolve(name));
+            }
+
+            journal.switchTo("Code", at(DAY, "09:00:00"));
+            journal.end(at(DAY, "09:00:05"));
+
+            assertFalse(Files.exists(dir.resolve("2024-03-07.seg")));
+            assertTrue(Files.exists(dir.resolve("2024-03-08.seg")));
+            assertTrue(Files.exists(dir.resolve("2024-03-09.seg")));
+            assertTrue(Files.exists(dir.resolve("2024-03-10.seg")));
+            // 文件名不是日期的不动
+            assertTrue(Files.exists(dir.resolve("notes.seg")));
+        }
+    }
+
+    @Test
+    void ignoresRecordWrittenWithoutCountAfterCrash() throws IOException {
+        try (ActivityJournal journal = open(0)) {
+            journal.switchTo("Code", at(DAY, "10:00:00"));
+            journal.switchTo("Chrome", at(DAY, "10:05:00"));
+            journal.end(at(DAY, "10:06:00"));
+        }
+        // 模拟追加第二条时崩溃：记录已写入，头部的条数还没更新
+        setCount(dir.resolve(DAY + ".seg"), 1);
+
+        try (ActivityJournal journal = open(0)) {
+            assertEquals(List.of(record("Code", DAY, "10:00:00", 300)), journal.records(DAY));
+
+            // 新记录覆盖未计入的那一条
+            journal.switchTo("Word", at(DAY, "10:10:00"));
+            journal.end(at(DAY, "10:11:00"));
+            assertEquals(List.of(
+                    record("Code", DAY, "10:00:00", 300),
+                    record("Word", DAY, "10:10:00", 60)), journal.records(DAY));
+        }
+    }
+
+    @Test
+    void movesSegmentWithTruncatedHeaderAside() throws IOException {
+        Path segment = dir.resolve(DAY + ".seg");
+        Files.write(segment, new byte[]{0x53, 0x4C});
+
+        try (ActivityJournal journal = open(0)) {
+            journal.switchTo("Code", at(DAY, "10:00:00"));
+            journal.end(at(DAY, "10:00:30"));
+
+            assertEquals(List.of(record("Code", DAY, "10:00:00", 30)), journal.records(DAY));
+        }
+        assertTrue(Files.exists(dir.resolve(DAY + ".seg.bad")));
+    }
+
+    @Test
+    void truncatesTornDictionaryEntryOnOpen() throws IOException {
+        try (ActivityJournal journal = open(0)) {
+            journal.switchTo("Code", at(DAY, "10:00:00"));
+            journal.end(at(DAY, "10:01:00"));
+        }
+        Path dictionary = dir.resolve("apps.dict");
+        long intact = Files.size(dictionary);
+        // 模拟写入新名称时崩溃：长度为 6，只写了 3 个字节
+        Files.write(dictionary, new byte[]{0, 6, 'C', 'h', 'r'}, StandardOpenOption.APPEND);
+
+        try (ActivityJournal journal = open(0)) {
+            journal.switchTo("Chrome", at(DAY, "11:00:00"));
+            journal.end(at(DAY, "11:00:45"));
+
+            assertEquals(List.of(
+                    record("Code", DAY, "10:00:00", 60),
+                    record("Chrome", DAY, "11:00:00", 45)), journal.records(DAY));
+        }
+        assertEquals(intact + 2 + "Chrome".getBytes(StandardCharsets.UTF_8).length, Files.size(dictionary));
+    }
+
+    private ActivityJournal open(int retentionDays) throws IOException {
+        return new ActivityJournal(dir, ZONE, retentionDays, MAX_GAP);
+    }
+
+    private static Instant at(LocalDate date, String time) {
+        return date.atTime(LocalTime.parse(time)).atZone(ZONE).toInstant();
+    }
+
+    private static ActivityRecord record(String app, LocalDate date, String start, long seconds) {
+        return new ActivityRecord(app, at(date, start), Duration.ofSeconds(seconds));
+    }
+
+    private static void setCount(Path segment, int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, count), 8);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.lokins.sleepy.gui.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameBatchedListTest {
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    @Test
+    void flushesBacklogAsOneChangeAndTrimsOldest() {
+        ObservableList<String> target = FXCollections.observableArrayList();
+        AtomicInteger changes = new AtomicInteger();
+        target.addListener((ListChangeListener<String>) change -> changes.incrementAndGet());
+        FrameBatchedList<String> list = new FrameBatchedList<>(target, 5);
+
+        list.addAll(List.of("a", "b", "c"));
+        assertEquals(3, list.flush());
+        list.addAll(List.of("d", "e", "f", "g"));
+        assertTrue(list.hasPending());
+        assertEquals(4, list.flush());
+
+        assertEquals(List.of("c", "d", "e", "f", "g"), target);
+        assertFalse(list.hasPending());
+        assertEquals(0, list.flush());
+        // 第二帧的删除和追加各一次
+        assertEquals(3, changes.get());
+    }
+
+    @Test
+    void keepsOnlyNewestWhenOneFrameExceedsLimit() {
+        ObservableList<String> target = FXCollections.observableArrayList("old");
+        FrameBatchedList<String> list = new FrameBatchedList<>(target, 3);
+
+        list.addAll(List.of("1", "2", "3", "4", "5"));
+        assertEquals(5, list.flush());
+
+        assertEquals(List.of("3", "4", "5"), target);
+    }
+
+    /**
+     * 后台线程每毫秒写入 10 行（10k 行/秒），本线程按 60 帧/秒刷新一个已满 10 万行、带筛选视图的列表，
+     * 统计每帧在“FX 线程”上的耗时。耗时取决于机器负载，只打印不断言；
+     * 默认不运行，{@code ./gradlew test -Dsleepy.logview.frameBench=true} 开启
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "sleepy.logview.frameBench", matches = "true")
+    void reportsFrameTimeAtTenThousandLinesPerSecond() throws InterruptedException {
+        int maxLines = 100_000;
+        ObservableList<String> target = FXCollections.observableArrayList();
+        List<String> initial = new ArrayList<>(maxLines);
+        for (int i = 0; i < maxLines; i++) {
+            initial.add("INFO line " + i);
+        }
+        target.setAll(initial);
+        // 和日志页一样挂一个筛选视图，计入它处理变更的开销
+        FilteredList<String> filtered = new FilteredList<>(target, line -> !line.startsWith("DEBUG"));
+        FrameBatchedList<String> list = new FrameBatchedList<>(target, maxLines);
+
+        int seconds = 2;
+        int linesPerMillisecond = 10;
+        AtomicBoolean producing = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> {
+            long next = System.nanoTime();
+            int line = 0;
+            for (int tick = 0; tick < seconds * 1000; tick++) {
+                List<String> batch = new ArrayList<>(linesPerMillisecond);
+                for (int i = 0; i < linesPerMillisecond; i++, line++) {
+                    batch.add((line % 4 == 0 ? "DEBUG" : "INFO") + " burst " + line);
+                }
+                list.addAll(batch);
+                next += 1_000_000;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            producing.set(false);
+        }, "log-burst");
+
+        List<Long> frames = new ArrayList<>();
+        int flushed = 0;
+        producer.start();
+        while (producing.get() || list.hasPending()) {
+            long start = System.nanoTime();
+            flushed += list.flush();
+            frames.add(System.nanoTime() - start);
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, FRAME_NANOS - (System.nanoTime() - start)));
+        }
+        producer.join();
+
+        assertEquals(seconds * 1000 * linesPerMillisecond, flushed);
+        assertEquals(maxLines, target.size());
+        assertEquals("INFO burst " + (flushed - 1), target.get(target.size() - 1));
+
+        // 前几帧包含 JIT 预热，不计入
+        long[] measured = frames.subList(Math.min(10, frames.size() / 2), frames.size())
+                .stream().mapToLong(Long::longValue).sorted().toArray();
+        long p95 = measured[(int) (measured.length * 0.95)];
+        double average = Arrays.stream(measured).average().orElse(0);
+        System.out.printf("FrameBatchedList: %d frames, avg %.0f us, p95 %d us, max %d us per frame (budget %d us)%n",
+                measured.length, average / 1000, p95 / 1000, measured[measured.length - 1] / 1000, FRAME_NANOS / 1000);
+        assertFalse(filtered.isEmpty());
+    }
+}
@@ -0,0 +1,265 @@
+package com.lokins.sleepy.gui.launch;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 以本地 {@link HttpServer} 充当 Maven 仓库，覆盖断点续传、校验失败重试与原子落盘
+ */
+class RuntimeDownloaderTest {
+    private static final RuntimeDownloader.Artifact ARTIFACT =
+            new RuntimeDownloader.Artifact("javafx-base", "21", "linux");
+    private static final byte[] CONTENT = new byte[300_000];
+    private static final int PARTIAL = 100_000;
+
+    static {
+        new Random(42).nextBytes(CONTENT);
+    }
+
+    private enum RangeMode {
+        HONOR,
+        // 忽略 Range，总是返回完整文件（200）
+        IGNORE,
+        // 返回 206，但内容从头开始
+        WRONG_START
+    }
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final AtomicInteger corruptResponses = new AtomicInteger();
+    private volatile RangeMode rangeMode = RangeMode.HONOR;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        String path = "/repo/" + ARTIFACT.module() + "/" + ARTIFACT.version() + "/" + ARTIFACT.fileName();
+        server.createContext(path + ".sha256", exchange ->
+                respond(exchange, 200, (sha256(CONTENT) + "  " + ARTIFACT.fileName()).getBytes(StandardCharsets.US_ASCII)));
+        server.createContext(path, this::serveJar);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void resumesPartialDownloadWithRange() throws Exception {
+        writePart(Arrays.copyOf(CONTENT, PARTIAL));
+
+        downloader().downloadAll(List.of(ARTIFACT), null);
+
+        assertEquals(List.of("bytes=" + PARTIAL + "-"), ranges);
+        assertInstalled();
+    }
+
+    @Test
+    void startsOverWhenServerIgnoresRange() throws Exception {
+        rangeMode = RangeMode.IGNORE;
+        writePart(Arrays.copyOf(CONTENT, PARTIAL));
+
+        downloader().downloadAll(List.of(ARTIFACT), null);
+
+        assertEquals(List.of("bytes=" + PARTIAL + "-"), ranges);
+        assertInstalled();
+    }
+
+    @Test
+    void startsOverWhenContentRangeDoesNotStartAtPartLength() throws Exception {
+        rangeMode = RangeMode.WRONG_START;
+        writePart(Arrays.copyOf(CONTENT, PARTIAL));
+
+        downloader().downloadAll(List.of(ARTIFACT), null);
+
+        assertEquals(List.of("bytes=" + PARTIAL + "-", ""), ranges);
+        assertInstalled();
+    }
+
+    @Test
+    void keepsCompletePartOn416() throws Exception {
+        writePart(CONTENT);
+
+        downloader().downloadAll(List.of(ARTIFACT), null);
+
+        assertEquals(List.of("bytes=" + CONTENT.length + "-"), ranges);
+        assertInstalled();
+    }
+
+    @Test
+    void startsOverOn416WhenPartIsLongerThanRemoteFile() throws Exception {
+        byte[] tooLong = Arrays.copyOf(CONTENT, CONTENT.length + 10);
+        writePart(tooLong);
+
+        downloader().downloadAll(List.of(ARTIFACT), null);
+
+        assertEquals(List.of("bytes=" + tooLong.length + "-", ""), ranges);
+        assertInstalled();
+    }
+
+    @Test
+    void retriesOnceAfterChecksumMismatchWithoutOvershootingProgress() throws Exception {
+        corruptResponses.set(1);
+        List<Long> reported = new CopyOnWriteArrayList<>();
+
+        downloader().downloadAll(List.of(ARTIFACT), (downloaded, total, status) -> reported.add(downloaded));
+
+        assertEquals(List.of("", ""), ranges);
+        assertInstalled();
+        assertTrue(reported.stream().allMatch(value -> value <= CONTENT.length), reported::toString);
+        assertEquals((long) CONTENT.length, reported.get(reported.size() - 1).longValue());
+    }
+
+    @Test
+    void leavesNoTargetWhenChecksumKeepsFailing() {
+        corruptResponses.set(2);
+
+        assertThrows(IOException.class, () -> downloader().downloadAll(List.of(ARTIFACT), null));
+
+        assertFalse(Files.exists(target()));
+        assertFalse(Files.exists(part()));
+        assertFalse(Files.exists(dir.resolve(ARTIFACT.fileName() + ".verified")));
+    }
+
+    @Test
+    void usesUnverifiedJarFromOldLauncherWhenOffline() throws Exception {
+        byte[] jar = jarBytes();
+        Files.write(target(), jar);
+        assertFalse(RuntimeDownloader.isInstalled(dir, List.of(ARTIFACT)));
+        assertTrue(RuntimeDownloader.isUsableOffline(dir, List.of(ARTIFACT)));
+
+        offlineDownloader().downloadAll(List.of(ARTIFACT), null);
+
+        assertArrayEquals(jar, Files.readAllBytes(target()));
+        // 没有校验过，不写标记，下次联网启动时再校验
+        assertFalse(Files.exists(dir.resolve(ARTIFACT.fileName() + ".verified")));
+    }
+
+    @Test
+    void failsOfflineWhenUnverifiedJarIsDamaged() throws Exception {
+        Files.write(target(), Arrays.copyOf(jarBytes(), 10));
+        assertFalse(RuntimeDownloader.isUsableOffline(dir, List.of(ARTIFACT)));
+
+        assertThrows(IOException.class, () -> offlineDownloader().downloadAll(List.of(ARTIFACT), null));
+    }
+
+    @Test
+    void reportsInstalledOnlyWithVerifiedMarker() throws Exception {
+        downloader().downloadAll(List.of(ARTIFACT), null);
+
+        assertTrue(RuntimeDownloader.isInstalled(dir, List.of(ARTIFACT)));
+        assertFalse(RuntimeDownloader.isInstalled(dir, List.of(ARTIFACT, new RuntimeDownloader.Artifact("javafx-fxml", "21", "linux"))));
+    }
+
+    private RuntimeDownloader offlineDownloader() throws IOException {
+        // 先占用再释放一个端口，连接会被拒绝
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        return new RuntimeDownloader(new OkHttpClient(), "http://127.0.0.1:" + port + "/repo/", dir, null, 1);
+    }
+
+    private static byte[] jarBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.US_ASCII));
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private RuntimeDownloader downloader() {
+        String repository = "http://127.0.0.1:" + server.getAddress().getPort() + "/repo/";
+        return new RuntimeDownloader(new OkHttpClient(), repository, dir, null, 1);
+    }
+
+    private void serveJar(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        ranges.add(range == null ? "" : range);
+        byte[] content = CONTENT;
+        if (corruptResponses.getAndDecrement() > 0) {
+            content = content.clone();
+            content[content.length / 2] ^= 1;
+        }
+
+        if (range == null || rangeMode == RangeMode.IGNORE) {
+            respond(exchange, 200, content);
+            return;
+        }
+        int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+        if (start >= content.length) {
+            exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+            exchange.sendResponseHeaders(416, -1);
+            exchange.close();
+            return;
+        }
+        int from = rangeMode == RangeMode.WRONG_START ? 0 : start;
+        exchange.getResponseHeaders().set("Content-Range",
+                "bytes " + from + "-" + (content.length - 1) + "/" + content.length);
+        respond(exchange, 206, Arrays.copyOfRange(content, from, content.length));
+    }
+
+    private static void respond(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void writePart(byte[] content) throws IOException {
+        Files.write(part(), content);
+    }
+
+    private void assertInstalled() throws IOException {
+        assertArrayEquals(CONTENT, Files.readAllBytes(target()));
+        assertFalse(Files.exists(part()));
+        assertTrue(Files.isRegularFile(dir.resolve(ARTIFACT.fileName() + ".verified")));
+    }
+
+    private Path target() {
+        return dir.resolve(ARTIFACT.fileName());
+    }
+
+    private Path part() {
+        return dir.resolve(ARTIFACT.fileName() + ".part");
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
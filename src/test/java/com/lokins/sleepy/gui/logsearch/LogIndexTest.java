@@ -0,0 +1,135 @@
+package com.lokins.sleepy.gui.logsearch;
+
+import ch.qos.logback.classic.Level;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogIndexTest {
+    private static final String HISTORY_FILE = "history/sleepy.2024-03-10.0.log";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void searchesLatestLogAsItGrowsAndAfterRotation() throws IOException {
+        LogIndex index = new LogIndex(dir);
+        write("latest.log",
+                line("10:00:00", "INFO", "MonitorService", "monitor started"),
+                line("10:00:01", "WARN", "SleepyClient", "connection refused"));
+
+        List<LogHit> hits = index.search(LogQuery.text("refused", 10));
+        assertEquals(List.of("connection refused"), messages(hits));
+        assertEquals(Level.WARN, hits.get(0).level());
+        assertEquals("SleepyClient", hits.get(0).loggerName());
+        assertEquals("latest.log", hits.get(0).file());
+
+        // 最后一行还没写完：不进入索引，写完后再被索引
+        append("latest.log", line("10:00:02", "ERROR", "SleepyClient", "upload failed")
+                + "2024-03-10 10:00:03.000 [main] INFO  SleepyClient - upload ret");
+        assertEquals(List.of("upload failed"), messages(index.search(LogQuery.text("upload", 10))));
+        assertEquals(List.of(), messages(index.search(LogQuery.text("ret", 10))));
+
+        append("latest.log", "ry scheduled\n");
+        assertEquals(List.of("upload retry scheduled", "upload failed"),
+                messages(index.search(LogQuery.text("upload", 10))));
+
+        // Logback 滚动：旧文件移入 history，latest.log 从头写起（变短）
+        Files.createDirectories(dir.resolve("history"));
+        Files.move(dir.resolve("latest.log"), dir.resolve(HISTORY_FILE));
+        write("latest.log", line("10:05:00", "INFO", "MonitorService", "monitor restarted"));
+
+        hits = index.search(LogQuery.text("", 10));
+        assertEquals(List.of("monitor restarted", "upload retry scheduled", "upload failed",
+                "connection refused", "monitor started"), messages(hits));
+        assertEquals("latest.log", hits.get(0).file());
+        assertEquals(HISTORY_FILE, hits.get(1).file());
+        assertEquals(List.of("monitor restarted", "monitor started"),
+                messages(index.search(LogQuery.text("monitor", 10))));
+    }
+
+    @Test
+    void rebuildsWhenLatestLogIsReplacedByLongerFile() throws IOException {
+        LogIndex index = new LogIndex(dir);
+        write("latest.log", line("10:00:00", "INFO", "MonitorService", "monitor started"));
+        assertEquals(1, index.search(LogQuery.text("started", 10)).size());
+
+        // 滚动后新文件已经比旧的长：只能通过开头内容的 CRC 发现
+        write("latest.log",
+                line("11:00:00", "INFO", "Launcher", "runtime ready"),
+                line("11:00:01", "INFO", "MonitorService", "monitor resumed after restart"));
+
+        assertEquals(List.of(), messages(index.search(LogQuery.text("started", 10))));
+        assertEquals(List.of("monitor resumed after restart"), messages(index.search(LogQuery.text("monitor", 10))));
+    }
+
+    @Test
+    void reloadsPersistedIndexWithoutRebuilding() throws IOException {
+        // 第一行足够长，第二行落在用于识别文件的开头字节之外
+        String padding = "x".repeat(300);
+        write("latest.log",
+                line("10:00:00", "INFO", "MonitorService", "monitor started " + padding),
+                line("10:00:01", "WARN", "SleepyClient", "connection refused"));
+        new LogIndex(dir).search(LogQuery.text("refused", 10));
+        assertTrue(Files.isRegularFile(dir.resolve("index/latest.log.idx")));
+
+        // 等长替换第二行中的词：长度与开头都没变，重新打开时沿用持久化的索引，不重新分词
+        Path file = dir.resolve("latest.log");
+        Files.writeString(file, Files.readString(file).replace("refused", "dropped"));
+
+        LogIndex reopened = new LogIndex(dir);
+        assertEquals(List.of("monitor started " + padding), messages(reopened.search(LogQuery.text("monitor", 10))));
+        assertEquals(List.of(), messages(reopened.search(LogQuery.text("dropped", 10))));
+        // 索引中的词仍指向这条日志，但原文校验不通过
+        assertEquals(List.of(), messages(reopened.search(LogQuery.text("refused", 10))));
+
+        // 之后追加的内容增量索引
+        append("latest.log", line("10:00:02", "ERROR", "SleepyClient", "upload failed"));
+        assertEquals(List.of("upload failed"), messages(reopened.search(LogQuery.text("upload", 10))));
+    }
+
+    @Test
+    void rebuildsCorruptedIndex() throws IOException {
+        write("latest.log", line("10:00:00", "INFO", "MonitorService", "monitor started"));
+        new LogIndex(dir).search(LogQuery.text("monitor", 10));
+        Files.write(dir.resolve("index/latest.log.idx"), new byte[]{1, 2, 3});
+
+        assertEquals(List.of("monitor started"), messages(new LogIndex(dir).search(LogQuery.text("monitor", 10))));
+    }
+
+    @Test
+    void filtersByLevel() throws IOException {
+        write("latest.log",
+                line("10:00:00", "INFO", "SleepyClient", "report sent"),
+                line("10:00:01", "WARN", "SleepyClient", "report retried"),
+                line("10:00:02", "ERROR", "SleepyClient", "report dropped"));
+
+        List<LogHit> hits = new LogIndex(dir).search(
+                new LogQuery(Long.MIN_VALUE, Long.MAX_VALUE, Level.WARN, "report", 10));
+        assertEquals(List.of("report dropped", "report retried"), messages(hits));
+    }
+
+    private static String line(String time, String level, String logger, String message) {
+        return String.format("2024-03-10 %s.000 [main] %-5s %s - %s%n", time, level, logger, message);
+    }
+
+    private void write(String name, String... lines) throws IOException {
+        Files.writeString(dir.resolve(name), String.join("", lines), StandardCharsets.UTF_8);
+    }
+
+    private void append(String name, String text) throws IOException {
+        Files.writeString(dir.resolve(name), text, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private static List<String> messages(List<LogHit> hits) {
+        return hits.stream().map(LogHit::message).toList();
+    }
+}
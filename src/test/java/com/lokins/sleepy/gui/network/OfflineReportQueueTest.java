@@ -0,0 +1,318 @@
+package com.lokins.sleepy.gui.network;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfflineReportQueueTest {
+    private static final long MAX_BYTES = 1024 * 1024;
+    private static final long MAX_AGE = 60_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void truncatesTornTailOnOpen() throws IOException {
+        try (OfflineReportQueue queue = open()) {
+            queue.append(payload("pc-01", "Code"));
+            queue.append(payload("pc-02", "Chrome"));
+        }
+        Path file = dir.resolve("reports.q");
+        long intact = Files.size(file);
+        // 模拟写到一半时崩溃：只有长度字段和部分头部
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (OfflineReportQueue queue = open()) {
+            assertEquals(2, queue.size());
+            assertEquals(intact, Files.size(file));
+            assertEquals(List.of("pc-01", "pc-02"), ids(queue.peek()));
+        }
+    }
+
+    @Test
+    void skipsRecordThatPassesCrcButIsNotJson() throws IOException {
+        try (OfflineReportQueue queue = open()) {
+            queue.append(payload("pc-01", "Code"));
+        }
+        appendRawRecord(dir.resolve("reports.q"), "{not json".getBytes(StandardCharsets.UTF_8));
+        try (OfflineReportQueue queue = open()) {
+            queue.append(payload("pc-02", "Chrome"));
+        }
+
+        try (OfflineReportQueue queue = open()) {
+            assertEquals(2, queue.size());
+            assertEquals(List.of("pc-01", "pc-02"), ids(queue.peek()));
+        }
+    }
+
+    @Test
+    void collapsesToLatestPerDeviceInOrderOfLastReport() throws IOException {
+        try (OfflineReportQueue queue = open()) {
+            queue.append(payload("pc-01", "Code", 3000));
+            queue.append(payload("pc-02", "Chrome", 2000));
+            queue.append(payload("pc-01", "Terminal", 1000));
+
+            List<ReportPayload> replay = queue.peek();
+            assertEquals(List.of("pc-02", "pc-01"), ids(replay));
+            assertEquals("Terminal", replay.get(1).getStatus());
+        }
+    }
+
+    @Test
+    void evictsExpiredRecords() throws IOException {
+        try (OfflineReportQueue queue = open()) {
+            queue.append(payload("pc-01", "Code", MAX_AGE + 1000));
+            assertEquals(1, queue.size());
+
+            assertTrue(queue.peek().isEmpty());
+            assertTrue(queue.isEmpty());
+        }
+        assertEquals(0, Files.size(dir.resolve("reports.q")));
+    }
+
+    @Test
+    void keepsRecordsUntilAcknowledged() throws IOException {
+        try (OfflineReportQueue queue = open()) {
+            queue.append(payload("pc-01", "Code", 2000));
+            queue.append(payload("pc-02", "Chrome", 1000));
+            assertEquals(2, queue.peek().size());
+        }
+
+        // 读出后进程退出（或发送失败），记录仍在
+        try (OfflineReportQueue queue = open()) {
+            List<ReportPayload> replay = queue.peek();
+            assertEquals(List.of("pc-01", "pc-02"), ids(replay));
+
+            queue.acknowledge(replay.get(0));
+            assertEquals(List.of("pc-02"), ids(queue.peek()));
+        }
+        try (OfflineReportQueue queue = open()) {
+            assertEquals(List.of("pc-02"), ids(queue.peek()));
+        }
+        assertFalse(Files.exists(dir.resolve("reports.q.tmp")));
+    }
+
+    @Test
+    void acknowledgeKeepsNewerRecordsOfSameDevice() throws IOException {
+        try (OfflineReportQueue queue = open()) {
+            ReportPayload older = payload("pc-01", "Code", 2000);
+            queue.append(older);
+            queue.append(payload("pc-01", "Chrome", 1000));
+
+            queue.acknowledge(older);
+            List<ReportPayload> replay = queue.peek();
+            assertEquals(1, replay.size());
+            assertEquals("Chrome", replay.get(0).getStatus());
+        }
+    }
+
+    @Test
+    void doesNotAppendRecordThatIsAlreadyQueued() throws IOException {
+        try (OfflineReportQueue queue = open()) {
+            queue.append(payload("pc-01", "Code", 1000));
+            // 重放失败的记录再次写入
+            for (ReportPayload payload : queue.peek()) {
+                queue.append(payload);
+            }
+            assertEquals(1, queue.size());
+        }
+    }
+
+    @Test
+    void replaysInOrderAfterReconnect() throws Exception {
+        try (DroppingServer server = new DroppingServer();
+             OfflineReportQueue queue = open()) {
+            SleepyClient client = new SleepyClient(server.url(), "secret", "pc-a");
+            // 退避足够长，只在下一次发送成功后重放
+            ReportPipeline pipeline = new ReportPipeline(client, 0, queue, new BackoffPolicy(60_000, 60_000));
+            try {
+                pipeline.submit(payload("pc-a", "Code"));
+                awaitQueued(queue, 1);
+                pipeline.submit(payload("pc-b", "Chrome"));
+                awaitQueued(queue, 2);
+                assertTrue(server.received().isEmpty());
+
+                server.online = true;
+                pipeline.submit(payload("pc-c", "Terminal"));
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (server.received().size() < 3 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+
+                assertEquals(List.of("pc-c", "pc-a", "pc-b"), server.received());
+                assertTrue(queue.isEmpty());
+            } finally {
+                pipeline.stop();
+            }
+        }
+    }
+
+    @Test
+    void persistsReportStillInFlightWhenStopTimesOut() throws Exception {
+        // 只在 backlog 中完成握手、从不 accept 的服务端：请求发出后一直等不到响应
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            SleepyClient client = new SleepyClient("http://127.0.0.1:" + silent.getLocalPort() + "/", "secret", "pc-a");
+            ReportPipeline pipeline = new ReportPipeline(client, 0, open(), new BackoffPolicy(60_000, 60_000));
+            pipeline.submit(payload("pc-a", "Code"));
+
+            pipeline.stopGracefully(200);
+
+            assertEquals(1, pipeline.getQueuedCount());
+            assertEquals(0, pipeline.getDroppedCount());
+            try (OfflineReportQueue reopened = open()) {
+                assertEquals(List.of("pc-a"), ids(reopened.peek()));
+            }
+        }
+    }
+
+    @Test
+    void ignoresLateAppendAndAcknowledgeAfterClose() throws IOException {
+        ReportPayload sent = payload("pc-a", "Code");
+        OfflineReportQueue queue = open();
+        queue.append(sent);
+        queue.close();
+
+        queue.acknowledge(sent);
+        queue.append(payload("pc-b", "Chrome"));
+        queue.close();
+
+        try (OfflineReportQueue reopened = open()) {
+            assertEquals(List.of("pc-a"), ids(reopened.peek()));
+        }
+    }
+
+    private static void awaitQueued(OfflineReportQueue queue, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (queue.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(size, queue.size());
+    }
+
+    private OfflineReportQueue open() throws IOException {
+        return new OfflineReportQueue(dir, MAX_BYTES, MAX_AGE);
+    }
+
+    private static ReportPayload payload(String id, String app) {
+        return new ReportPayload(id, id, app);
+    }
+
+    /**
+     * @param ageMillis 距现在多久之前创建
+     */
+    private static ReportPayload payload(String id, String app, long ageMillis) {
+        ReportPayload payload = payload(id, app);
+        payload.setCreatedAt(System.currentTimeMillis() - ageMillis);
+        return payload;
+    }
+
+    private static List<String> ids(List<ReportPayload> payloads) {
+        List<String> ids = new ArrayList<>();
+        for (ReportPayload payload : payloads) {
+            ids.add(payload.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 直接写入一条长度与 CRC 都正确的记录
+     */
+    private static void appendRawRecord(Path file, byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer record = ByteBuffer.allocate(16 + body.length);
+        record.putInt(body.length).putLong(System.currentTimeMillis()).putInt((int) crc.getValue()).put(body);
+        Files.write(file, record.array(), StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 替身服务器：离线时接受连接后立即断开，在线时记录每次上报的设备 ID 并返回 200
+     */
+    private static final class DroppingServer implements AutoCloseable {
+        private final ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final Thread acceptor;
+        volatile boolean online;
+
+        DroppingServer() throws IOException {
+            acceptor = Thread.ofPlatform().daemon().name("dropping-server").start(this::acceptLoop);
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + socket.getLocalPort() + "/";
+        }
+
+        List<String> received() {
+            return List.copyOf(received);
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try (Socket connection = socket.accept()) {
+                    if (online) {
+                        handle(connection);
+                    }
+                } catch (IOException e) {
+                    // 关闭后退出，单个连接出错时继续
+                }
+            }
+        }
+
+        private void handle(Socket connection) throws IOException {
+            InputStream in = connection.getInputStream();
+            int contentLength = 0;
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            byte[] body = in.readNBytes(contentLength);
+            received.add(objectMapper.readTree(body).get("id").asText());
+
+            OutputStream out = connection.getOutputStream();
+            out.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') line.write(b);
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            try {
+                acceptor.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
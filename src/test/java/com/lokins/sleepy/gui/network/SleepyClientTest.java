@@ -0,0 +1,47 @@
+package com.lokins.sleepy.gui.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SleepyClientTest {
+    private static final long MAX = 300_000;
+
+    @Test
+    void parsesDelaySecondsWithinCap() {
+        assertEquals(0, SleepyClient.parseRetryAfter("0", MAX));
+        assertEquals(120_000, SleepyClient.parseRetryAfter(" 120 ", MAX));
+        assertEquals(MAX, SleepyClient.parseRetryAfter("300", MAX));
+    }
+
+    @Test
+    void clampsHugeDelaysWithoutOverflow() {
+        assertEquals(MAX, SleepyClient.parseRetryAfter("86400", MAX));
+        assertEquals(MAX, SleepyClient.parseRetryAfter(Long.toString(Long.MAX_VALUE / 10), MAX));
+        assertEquals(MAX, SleepyClient.parseRetryAfter("99999999999999999999999", MAX));
+    }
+
+    @Test
+    void rejectsNegativeAndMalformedValues() {
+        assertEquals(-1, SleepyClient.parseRetryAfter("-5", MAX));
+        assertEquals(-1, SleepyClient.parseRetryAfter("1.5", MAX));
+        assertEquals(-1, SleepyClient.parseRetryAfter("soon", MAX));
+        assertEquals(-1, SleepyClient.parseRetryAfter("", MAX));
+        assertEquals(-1, SleepyClient.parseRetryAfter(null, MAX));
+    }
+
+    @Test
+    void parsesHttpDateWithinCap() {
+        DateTimeFormatter format = DateTimeFormatter.RFC_1123_DATE_TIME;
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+
+        assertEquals(0, SleepyClient.parseRetryAfter(format.format(now.minusMinutes(1)), MAX));
+        long soon = SleepyClient.parseRetryAfter(format.format(now.plusMinutes(1)), MAX);
+        assertTrue(soon > 50_000 && soon <= 60_000, () -> Long.toString(soon));
+        assertEquals(MAX, SleepyClient.parseRetryAfter(format.format(now.plusDays(1)), MAX));
+    }
+}
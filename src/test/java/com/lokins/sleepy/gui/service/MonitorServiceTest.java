@@ -0,0 +1,99 @@
+package com.lokins.sleepy.gui.service;
+
+import com.lokins.sleepy.gui.activity.ActivityJournal;
+import com.lokins.sleepy.gui.activity.ActivityRecord;
+import com.lokins.sleepy.gui.network.SleepyClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用 {@link ScriptedForegroundSource} 驱动 MonitorService，不依赖任何平台的窗口 API
+ */
+class MonitorServiceTest {
+    private final List<String> changes = new CopyOnWriteArrayList<>();
+    private MonitorService service;
+
+    @AfterEach
+    void stopService() {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void notifiesOnlyWhenNormalizedAppChanges() {
+        ScriptedForegroundSource source = new ScriptedForegroundSource(List.of());
+        start(source);
+
+        source.emit("main.py - Visual Studio Code");
+        source.emit("test.py - Visual Studio Code");
+        source.emit("Inbox - Mozilla Thunderbird");
+        source.emit("");
+        source.emit("main.py - Visual Studio Code");
+
+        assertEquals(List.of("Visual Studio Code", "Mozilla Thunderbird", "Visual Studio Code"), changes);
+        assertEquals(3, service.getPipeline().getSubmittedCount());
+    }
+
+    @Test
+    void playsScriptInOrder() throws InterruptedException {
+        start(new ScriptedForegroundSource(List.of(
+                new ScriptedForegroundSource.Step(0, "a.txt - Notepad"),
+                new ScriptedForegroundSource.Step(20, "Google Chrome"),
+                new ScriptedForegroundSource.Step(20, "b.txt - Notepad"))));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (changes.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("Notepad", "Google Chrome", "Notepad"), changes);
+    }
+
+    @Test
+    void reportsCurrentAppAgainAfterRestart() {
+        ScriptedForegroundSource source = new ScriptedForegroundSource(List.of());
+        start(source);
+        source.emit("a.txt - Notepad");
+
+        service.stop();
+        source.emit("Google Chrome");
+        assertEquals(List.of("Notepad"), changes);
+
+        service.start();
+        source.emit("a.txt - Notepad");
+        assertEquals(List.of("Notepad", "Notepad"), changes);
+    }
+
+    @Test
+    void emptyTitleEndsActivityRecordWithoutReporting() {
+        ScriptedForegroundSource source = new ScriptedForegroundSource(List.of());
+        start(source);
+        ActivityJournal journal = service.getJournal();
+        assertNotNull(journal);
+        int before = journal.records(LocalDate.now()).size();
+
+        source.emit("a.txt - Notepad");
+        source.emit("");
+        source.emit("a.txt - Notepad");
+
+        // 回到同一应用不再上报，但活动记录重新开始一条
+        assertEquals(List.of("Notepad"), changes);
+        List<ActivityRecord> records = journal.records(LocalDate.now());
+        assertEquals(before + 2, records.size());
+        assertEquals("Notepad", records.get(records.size() - 2).app());
+        assertEquals("Notepad", records.get(records.size() - 1).app());
+    }
+
+    private void start(ScriptedForegroundSource source) {
+        // 不可达的地址：上报失败后进入离线队列，不影响这里验证的切换检测
+        SleepyClient client = new SleepyClient("http://127.0.0.1:9/", "secret", "test-pc");
+        service = new MonitorService(client, changes::add, source);
+        service.start();
+    }
+}
@@ -0,0 +1,38 @@
+package com.lokins.sleepy.gui.service;
+
+import com.lokins.sleepy.gui.window.ScriptedWindowProvider;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用 {@link ScriptedWindowProvider} 代替真实的窗口 API 驱动轮询
+ */
+class PollingForegroundSourceTest {
+
+    @Test
+    void pollsProviderUntilStopped() throws InterruptedException {
+        ScriptedWindowProvider provider = new ScriptedWindowProvider();
+        provider.script("a.txt - Notepad", "Google Chrome");
+        List<String> titles = new CopyOnWriteArrayList<>();
+        PollingForegroundSource source = new PollingForegroundSource(provider::getActiveWindowTitle, () -> 1);
+
+        source.start(titles::add);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (titles.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        source.stop();
+
+        assertTrue(titles.size() >= 3, titles::toString);
+        assertEquals(List.of("a.txt - Notepad", "Google Chrome", "Google Chrome"), titles.subList(0, 3));
+        // 停止时可能正有一次轮询在执行，稍等后再开始计数
+        Thread.sleep(100);
+        int polled = titles.size();
+        Thread.sleep(1500);
+        assertEquals(polled, titles.size());
+    }
+}
@@ -0,0 +1,69 @@
+package com.lokins.sleepy.gui.service;
+
+import com.lokins.sleepy.gui.utils.Tasks;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 脚本化的前台窗口来源：不依赖任何操作系统 API，按预设脚本推送标题
+ * <p>
+ * 用于在任何平台上测试 MonitorService 与上报链路，也可以通过 {@link #emit(String)} 手动推送。
+ */
+public class ScriptedForegroundSource implements ForegroundChangeSource {
+
+    /**
+     * 一个脚本步骤：等待 delayMillis 后推送 title
+     */
+    public record Step(long delayMillis, String title) {
+    }
+
+    private final List<Step> script;
+    private volatile Consumer<String> listener;
+    private Thread player;
+
+    public ScriptedForegroundSource(List<Step> script) {
+        this.script = List.copyOf(script);
+    }
+
+    @Override
+    public synchronized void start(Consumer<String> listener) {
+        this.listener = listener;
+        if (script.isEmpty() || player != null) return;
+
+        player = Tasks.start("Sleepy-Scripted-Source", () -> {
+            try {
+                for (Step step : script) {
+                    Thread.sleep(step.delayMillis());
+                    emit(step.title());
+                }
+            } catch (InterruptedException ignored) {
+                // stop() 中断播放
+            }
+        });
+    }
+
+    /**
+     * 立即推送一个标题（调用方线程中同步执行）
+     */
+    public void emit(String title) {
+        Consumer<String> l = listener;
+        if (l != null) {
+            l.accept(title);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        listener = null;
+        if (player != null) {
+            player.interrupt();
+            player = null;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scripted";
+    }
+}
@@ -0,0 +1,108 @@
+package com.lokins.sleepy.gui.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多个写入线程并发写入、读者同时读取时，检查不重复、不乱序，且读到的数量加丢失数等于写入总数
+ */
+class LogRingBufferStressTest {
+    private static final int WRITERS = 4;
+    private static final int PER_WRITER = 200_000;
+
+    @Test
+    void concurrentWritersWithLaggingReader() throws Exception {
+        // 容量远小于写入总数，读者一定会落后并丢失消息
+        Result result = run(new LogRingBuffer<>(1024));
+
+        assertEquals((long) WRITERS * PER_WRITER, result.read + result.lost);
+        assertTrue(result.read > 0);
+    }
+
+    @Test
+    void concurrentWritersLoseNothingWhenBufferHoldsEverything() throws Exception {
+        Result result = run(new LogRingBuffer<>(WRITERS * PER_WRITER));
+
+        assertEquals(0, result.lost);
+        assertEquals((long) WRITERS * PER_WRITER, result.read);
+    }
+
+    @Test
+    void readerMoreThanOneLapBehindSkipsToOldestReadable() {
+        LogRingBuffer<Long> buffer = new LogRingBuffer<>(8);
+        for (long i = 0; i < 3 * buffer.capacity(); i++) {
+            buffer.publish(i);
+        }
+
+        LogRingBuffer<Long>.Cursor cursor = buffer.cursor(0);
+        List<Long> read = new ArrayList<>();
+        Long value;
+        while ((value = cursor.poll()) != null) {
+            read.add(value);
+        }
+
+        assertEquals(2L * buffer.capacity(), cursor.getLost());
+        assertEquals(buffer.capacity(), read.size());
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(2L * buffer.capacity() + i, read.get(i).longValue());
+        }
+    }
+
+    private record Result(long read, long lost) {
+    }
+
+    /**
+     * 每个写入线程写入 (线程号 << 32 | 递增序号)，读者检查每个写入线程的序号严格递增
+     */
+    private static Result run(LogRingBuffer<Long> buffer) throws Exception {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            long writer = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < PER_WRITER; i++) {
+                    buffer.publish(writer << 32 | i);
+                }
+            }, "ring-writer-" + w);
+            thread.start();
+            writers.add(thread);
+        }
+
+        long[] lastSeen = new long[WRITERS];
+        Arrays.fill(lastSeen, -1);
+        long read = 0;
+        LogRingBuffer<Long>.Cursor cursor = buffer.cursor(0);
+        go.countDown();
+        while (true) {
+            boolean writersDone = writers.stream().noneMatch(Thread::isAlive);
+            Long value = cursor.poll();
+            if (value == null) {
+                // 写入线程全部结束后所有槽位都已写完，读到 head 即可结束
+                if (writersDone && cursor.getPosition() >= buffer.head()) break;
+                Thread.onSpinWait();
+                continue;
+            }
+            int writer = (int) (value >>> 32);
+            long index = value & 0xFFFF_FFFFL;
+            assertTrue(index > lastSeen[writer], "writer " + writer + " out of order: " + index + " after " + lastSeen[writer]);
+            lastSeen[writer] = index;
+            read++;
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(buffer.head(), cursor.getPosition());
+        return new Result(read, cursor.getLost());
+    }
+}
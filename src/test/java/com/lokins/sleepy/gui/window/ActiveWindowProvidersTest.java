@@ -0,0 +1,48 @@
+package com.lokins.sleepy.gui.window;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActiveWindowProvidersTest {
+
+    @Test
+    void discoversBuiltInAndTestProviders() {
+        List<String> names = new ArrayList<>();
+        for (ActiveWindowProvider provider : ServiceLoader.load(ActiveWindowProvider.class)) {
+            names.add(provider.name());
+        }
+        assertTrue(names.containsAll(List.of("win32", "x11", "scripted")), names::toString);
+    }
+
+    @Test
+    void selectsProviderNamedBySystemPropertyEvenIfNotAutoSupported() {
+        // 选择结果在进程内缓存，本类是唯一调用 get() 的测试
+        System.setProperty("sleepy.window.provider", "scripted");
+        try {
+            ActiveWindowProvider provider = ActiveWindowProviders.get();
+            assertInstanceOf(ScriptedWindowProvider.class, provider);
+            assertSame(provider, ActiveWindowProviders.get());
+        } finally {
+            System.clearProperty("sleepy.window.provider");
+        }
+    }
+
+    @Test
+    void scriptedProviderRepeatsLastTitle() {
+        ScriptedWindowProvider provider = new ScriptedWindowProvider();
+        assertEquals("", provider.getActiveWindowTitle());
+
+        provider.script("a.txt - Notepad", "Google Chrome");
+        assertEquals("a.txt - Notepad", provider.getActiveWindowTitle());
+        assertEquals("Google Chrome", provider.getActiveWindowTitle());
+        assertEquals("Google Chrome", provider.getActiveWindowTitle());
+
+        provider.set("Terminal");
+        assertEquals("Terminal", provider.getActiveWindowTitle());
+    }
+}
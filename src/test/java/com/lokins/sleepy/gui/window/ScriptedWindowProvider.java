@@ -0,0 +1,55 @@
+package com.lokins.sleepy.gui.window;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 内存中的脚本化实现，用于测试：按顺序返回预设的标题，用完后一直返回最后一个
+ * <p>
+ * 只在测试类路径中注册（src/test/resources/META-INF/services），不参与自动选择，
+ * 只有显式指定 {@code window_provider = scripted} 时才会启用。
+ */
+public class ScriptedWindowProvider implements ActiveWindowProvider {
+    private final Queue<String> script = new ConcurrentLinkedQueue<>();
+    private volatile String current = "";
+
+    @Override
+    public String name() {
+        return "scripted";
+    }
+
+    @Override
+    public boolean isSupported() {
+        return false;
+    }
+
+    @Override
+    public int priority() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * 追加后续依次返回的标题
+     */
+    public void script(String... titles) {
+        script.addAll(Arrays.asList(titles));
+    }
+
+    /**
+     * 清空脚本并固定返回指定标题
+     */
+    public void set(String title) {
+        script.clear();
+        current = title == null ? "" : title;
+    }
+
+    @Override
+    public String getActiveWindowTitle() {
+        String next = script.poll();
+        if (next != null) {
+            current = next;
+        }
+        return current;
+    }
+}